@@ -0,0 +1,78 @@
+package org.foxesworld.cge.bench;
+
+import org.foxesworld.cge.core.file.cgtex.CGTEXFile;
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+import org.foxesworld.cge.core.file.cgtex.reader.CGTEXFileReader;
+import org.foxesworld.cge.core.file.cgtex.writer.CGTEXFileWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CGTEX pack open + full read and {@link CGTEXFileWriter#writeFile()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CGTEXFileBenchmark {
+
+    @Param({"16", "1024"})
+    public int textureCount;
+
+    @Param({"64", "512"})
+    public int size;
+
+    @Param({"1", "3", "5"})
+    public byte format;
+
+    private List<TextureEntry> textures;
+    private File readFile;
+    private File writeFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        textures = SyntheticData.textures(textureCount, size, format, 42);
+        readFile = SyntheticData.cgtexFile(textureCount, size, format, 42);
+        writeFile = File.createTempFile("bench-write-", ".cgtex");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        readFile.delete();
+        writeFile.delete();
+    }
+
+    @Benchmark
+    public void openAndReadAll(Blackhole bh) throws IOException {
+        try (CGTEXFile cgtexFile = new CGTEXFile(readFile, "r")) {
+            CGTEXFileReader reader = cgtexFile.readFile();
+            for (TextureEntry entry : reader.getTextures()) {
+                bh.consume(entry.getCompressedData());
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeFile() throws IOException {
+        try (CGTEXFile cgtexFile = new CGTEXFile(writeFile, "rw")) {
+            CGTEXFileWriter writer = new CGTEXFileWriter(cgtexFile);
+            for (TextureEntry entry : textures) {
+                writer.addTexture(entry);
+            }
+            writer.writeFile();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.foxesworld.cge.bench;
+
+import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
+import org.foxesworld.cge.tools.cgtexEditor.preview.DDSDecoder;
+import org.foxesworld.cge.tools.cgtexEditor.preview.DDSParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DDSParser#parseBytes(byte[])} and {@link DDSDecoder#decode(int, int, byte, byte[])},
+ * with the per-pixel {@code setRGB} decoder ({@link LegacyDDSDecoder}) as a baseline
+ * (DXT formats only; for BC4/5/7 the baseline just fills a checkerboard).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DDSBenchmark {
+
+    @Param({"64", "512", "2048", "4096"})
+    public int size;
+
+    /** DXT1, DXT3, DXT5, BC4, BC5, BC7. */
+    @Param({"1", "3", "5", "20", "21", "23"})
+    public byte format;
+
+    private byte[] ddsFile;
+    private byte[] payload;
+    private int[] argb;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ddsFile = SyntheticData.ddsFile(size, size, format, 42);
+        payload = SyntheticData.dxtPayload(size, size, format, 42);
+        argb = new int[size * size];
+    }
+
+    @Benchmark
+    public TextureInfo parseBytes() throws IOException {
+        return DDSParser.parseBytes(ddsFile);
+    }
+
+    @Benchmark
+    public BufferedImage decode() {
+        return DDSDecoder.decode(size, size, format, payload);
+    }
+
+    @Benchmark
+    public int[] decodeIntoArray() {
+        DDSDecoder.decode(size, size, format, payload, argb);
+        return argb;
+    }
+
+    @Benchmark
+    public BufferedImage decodeParallel() {
+        return DDSDecoder.decodeParallel(size, size, format, payload);
+    }
+
+    @Benchmark
+    public BufferedImage decodeThumbnail() {
+        return DDSDecoder.decodeThumbnail(size, size, format, payload, 180);
+    }
+
+    @Benchmark
+    public BufferedImage decodeLegacy() {
+        return LegacyDDSDecoder.decode(size, size, format, payload);
+    }
+}
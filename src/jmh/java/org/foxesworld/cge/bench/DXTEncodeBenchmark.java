@@ -0,0 +1,59 @@
+package org.foxesworld.cge.bench;
+
+import org.foxesworld.cge.tools.cgtexEditor.preview.DXTEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DXTEncoder} on the common pool and on a single thread.
+ * Encode speed in MPix/s is {@code ops/s * size * size / 1e6}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DXTEncodeBenchmark {
+
+    @Param({"256", "1024", "2048"})
+    public int size;
+
+    @Param({"1", "3", "5"})
+    public byte format;
+
+    @Param({"FAST", "HIGH"})
+    public DXTEncoder.Quality quality;
+
+    private int[] argb;
+    private ForkJoinPool singleThread;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        argb = SyntheticData.argbImage(size, size, 42);
+        singleThread = new ForkJoinPool(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return DXTEncoder.encode(size, size, argb, format, quality);
+    }
+
+    @Benchmark
+    public byte[] encodeSingleThread() {
+        return DXTEncoder.encode(size, size, argb, 0, size, format, quality, singleThread);
+    }
+}
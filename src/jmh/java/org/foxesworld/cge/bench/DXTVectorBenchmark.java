@@ -0,0 +1,58 @@
+package org.foxesworld.cge.bench;
+
+import org.foxesworld.cge.tools.cgtexEditor.preview.DDSDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded DXT decode with the Vector API decoder and with the scalar decoder
+ * ({@code -Dcgtex.vector=false}). The implementation is chosen once per JVM, so each
+ * variant runs in its own fork; the setup fails if the scalar fork still picked the vector
+ * decoder. On hosts without 256-bit vectors both variants run the scalar code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DXTVectorBenchmark {
+
+    @Param({"512", "2048"})
+    public int size;
+
+    @Param({"1", "3", "5"})
+    public byte format;
+
+    private byte[] payload;
+    private int[] argb;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        payload = SyntheticData.dxtPayload(size, size, format, 42);
+        argb = new int[size * size];
+        if (!Boolean.parseBoolean(System.getProperty("cgtex.vector", "true")) && DDSDecoder.isVectorized()) {
+            throw new IllegalStateException("-Dcgtex.vector=false did not disable the vector decoder");
+        }
+    }
+
+    @Benchmark
+    public int[] vector() {
+        DDSDecoder.decode(size, size, format, payload, argb);
+        return argb;
+    }
+
+    @Benchmark
+    @Fork(jvmArgsPrepend = "-Dcgtex.vector=false")
+    public int[] scalar() {
+        DDSDecoder.decode(size, size, format, payload, argb);
+        return argb;
+    }
+}
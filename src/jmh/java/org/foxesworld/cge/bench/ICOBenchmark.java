@@ -0,0 +1,82 @@
+package org.foxesworld.cge.bench;
+
+import org.foxesworld.cge.ICOParser;
+import org.foxesworld.cge.IconImageCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ICOParser#parse(java.io.InputStream)} for icons of one size and bit depth
+ * (bit depth 0 stands for PNG entries). {@code parse} runs without an image cache so
+ * that the decoding cost is measured; {@code parseCached} repeats the load through a
+ * content-addressed cache, as when the same icons are loaded again by another window.
+ * {@code parseBuffer} and {@code parseFile} read the same data from a direct buffer and a
+ * memory-mapped file instead of a stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ICOBenchmark {
+
+    @Param({"16", "32", "48", "64", "128", "256"})
+    public int size;
+
+    @Param({"0", "1", "4", "8", "24", "32"})
+    public int bitCount;
+
+    private byte[] ico;
+    private IconImageCache cache;
+    private ByteBuffer direct;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ico = SyntheticData.icoFile(new int[]{size}, bitCount, 42);
+        cache = new IconImageCache(16L << 20);
+        direct = ByteBuffer.allocateDirect(ico.length).put(ico).flip();
+        file = Files.createTempFile("bench", ".ico");
+        Files.write(file, ico);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<BufferedImage> parse() throws IOException {
+        return new ICOParser(IconImageCache.disabled()).parse(new ByteArrayInputStream(ico));
+    }
+
+    @Benchmark
+    public List<BufferedImage> parseBuffer() throws IOException {
+        return new ICOParser(IconImageCache.disabled()).parse(direct);
+    }
+
+    @Benchmark
+    public List<BufferedImage> parseFile() throws IOException {
+        return new ICOParser(IconImageCache.disabled()).parse(file);
+    }
+
+    @Benchmark
+    public List<BufferedImage> parseCached() throws IOException {
+        return new ICOParser(cache).parse(new ByteArrayInputStream(ico));
+    }
+}
@@ -0,0 +1,77 @@
+package org.foxesworld.cge.bench;
+
+import org.foxesworld.cge.ICOParser;
+import org.foxesworld.cge.IcoDocument;
+import org.foxesworld.cge.IconImageCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking one image from a multi-size ICO file, the way the editor sets its window icon:
+ * decoding every entry and choosing among the images, versus choosing from the directory
+ * and decoding only the chosen entry. The parsers run without an image cache so that
+ * it does not hide the decoding cost.
+ * <p>
+ * {@code sharedParser} and {@code sharedDocument} run on four threads at once with one parser,
+ * and with one parsed document, to show that neither needs locking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ICOSelectBenchmark {
+
+    private static final int[] SIZES = {16, 24, 32, 48, 64, 128, 256};
+
+    @Param({"0", "8", "32"})
+    public int bitCount;
+
+    private byte[] ico;
+    private ICOParser parser;
+    private IcoDocument document;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ico = SyntheticData.icoFile(SIZES, bitCount, 42);
+        parser = new ICOParser(IconImageCache.disabled());
+        document = parser.parseDirectory(ico);
+    }
+
+    @Benchmark
+    public BufferedImage decodeAll() throws IOException {
+        ICOParser parser = new ICOParser(IconImageCache.disabled());
+        List<BufferedImage> icons = parser.parse(new ByteArrayInputStream(ico));
+        return parser.getBestMatchingIcon(icons, 32, 32);
+    }
+
+    @Benchmark
+    public BufferedImage directory() throws IOException {
+        ICOParser parser = new ICOParser(IconImageCache.disabled());
+        return parser.parseDirectory(new ByteArrayInputStream(ico)).findBestMatch(32, 32).decode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BufferedImage sharedParser() throws IOException {
+        return parser.parseDirectory(ico).findBestMatch(32, 32).decode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BufferedImage sharedDocument() throws IOException {
+        return document.findBestMatch(32, 32).decode();
+    }
+}
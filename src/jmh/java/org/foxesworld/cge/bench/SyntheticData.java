@@ -0,0 +1,181 @@
+package org.foxesworld.cge.bench;
+
+import org.foxesworld.cge.core.file.cgtex.CGTEXFile;
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic inputs for the benchmarks: DXT payloads, DDS files,
+ * CGTEX packs, ICO files and ARGB source images. The same seed always produces the same bytes.
+ */
+public final class SyntheticData {
+    private static final int DDS_HEADER_SIZE = 128;
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Random but valid DXT1/3/5 and BC4/5/7 blocks. Endpoints are ordered at random, so both
+     * the 4-colour and the 3-colour + transparent DXT1 modes are exercised; random BC7 blocks
+     * cover all eight modes.
+     */
+    public static byte[] dxtPayload(int width, int height, byte format, long seed) {
+        int blocks = Math.max(1, (width + 3) / 4) * Math.max(1, (height + 3) / 4);
+        byte[] data = new byte[blocks * TextureEntry.blockSize(format)];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * ARGB source image for the encoder: smooth gradients with per-pixel noise and a
+     * varying alpha, closer to real art than uniformly random pixels.
+     */
+    public static int[] argbImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] argb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int g = y * 255 / height;
+                int b = ((x + y) * 127 / Math.max(1, width + height - 2) + random.nextInt(8)) & 0xFF;
+                int a = (x ^ y) & 0xFF;
+                argb[y * width + x] = a << 24 | r << 16 | g << 8 | b;
+            }
+        }
+        return argb;
+    }
+
+    /**
+     * A complete DDS file (128-byte header + payload) as written by DDS tools.
+     * BC4/BC5 use the ATI1/ATI2 FourCCs, BC7 the DX10 extended header.
+     */
+    public static byte[] ddsFile(int width, int height, byte format, long seed) {
+        byte[] payload = dxtPayload(width, height, format, seed);
+        boolean dx10 = format == TextureEntry.FORMAT_BC7;
+        int headerSize = dx10 ? DDS_HEADER_SIZE + 20 : DDS_HEADER_SIZE;
+        ByteBuffer buf = ByteBuffer.allocate(headerSize + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(new byte[]{'D', 'D', 'S', ' '});
+        buf.putInt(124);                 // dwSize
+        buf.putInt(0x0008_1007);         // dwFlags: CAPS | HEIGHT | WIDTH | PIXELFORMAT | LINEARSIZE
+        buf.putInt(height);
+        buf.putInt(width);
+        buf.putInt(payload.length);      // dwPitchOrLinearSize
+        buf.position(76);
+        buf.putInt(32);                  // ddspf.dwSize
+        buf.putInt(0x4);                 // DDPF_FOURCC
+        buf.put(switch (format) {
+            case TextureEntry.FORMAT_BC4 -> new byte[]{'A', 'T', 'I', '1'};
+            case TextureEntry.FORMAT_BC5 -> new byte[]{'A', 'T', 'I', '2'};
+            case TextureEntry.FORMAT_BC7 -> new byte[]{'D', 'X', '1', '0'};
+            default -> new byte[]{'D', 'X', 'T', (byte) ('0' + format)};
+        });
+        buf.position(108);
+        buf.putInt(0x1000);              // DDSCAPS_TEXTURE
+        buf.position(DDS_HEADER_SIZE);
+        if (dx10) {
+            buf.putInt(98);              // DXGI_FORMAT_BC7_UNORM
+            buf.putInt(3);               // TEXTURE2D
+            buf.putInt(0);
+            buf.putInt(1);               // arraySize
+            buf.putInt(0);
+        }
+        buf.put(payload);
+        return buf.array();
+    }
+
+    public static List<TextureEntry> textures(int count, int size, byte format, long seed) {
+        List<TextureEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new TextureEntry(size, size, "texture_" + i, format, dxtPayload(size, size, format, seed + i)));
+        }
+        return entries;
+    }
+
+    /**
+     * Writes a CGTEX pack of {@code count} square textures to a temporary file.
+     */
+    public static File cgtexFile(int count, int size, byte format, long seed) throws IOException {
+        File file = File.createTempFile("bench-", ".cgtex");
+        file.deleteOnExit();
+        try (CGTEXFile cgtexFile = new CGTEXFile(file, "rw")) {
+            cgtexFile.writeFile(textures(count, size, format, seed));
+        }
+        return file;
+    }
+
+    /**
+     * An ICO file with one square image per size. {@code bitCount} 1, 4, 8, 24 or 32
+     * produces BMP entries, 0 produces PNG entries.
+     */
+    public static byte[] icoFile(int[] sizes, int bitCount, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<byte[]> images = new ArrayList<>(sizes.length);
+        for (int size : sizes) {
+            images.add(bitCount == 0 ? pngImage(size, random) : bmpImage(size, bitCount, random));
+        }
+
+        int offset = 6 + 16 * sizes.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putShort((short) 0).putShort((short) 1).putShort((short) sizes.length);
+        for (int i = 0; i < sizes.length; i++) {
+            int size = sizes[i];
+            header.put((byte) (size >= 256 ? 0 : size));
+            header.put((byte) (size >= 256 ? 0 : size));
+            header.put((byte) (bitCount > 0 && bitCount <= 8 ? 1 << bitCount : 0));
+            header.put((byte) 0);
+            header.putShort((short) 1);
+            header.putShort((short) (bitCount == 0 ? 32 : bitCount));
+            header.putInt(images.get(i).length);
+            header.putInt(offset);
+            offset += images.get(i).length;
+        }
+        out.write(header.array());
+        for (byte[] image : images) {
+            out.write(image);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bmpImage(int size, int bitCount, Random random) {
+        int paletteSize = bitCount <= 8 ? (1 << bitCount) * 4 : 0;
+        int rowSize = ((size * bitCount + 31) / 32) * 4;
+        int maskRowSize = ((size + 31) / 32) * 4;
+        ByteBuffer buf = ByteBuffer.allocate(40 + paletteSize + (rowSize + maskRowSize) * size)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(40);                  // biSize
+        buf.putInt(size);                // biWidth
+        buf.putInt(size * 2);            // biHeight (image + AND mask)
+        buf.putShort((short) 1);         // biPlanes
+        buf.putShort((short) bitCount);  // biBitCount
+        buf.putInt(0);                   // biCompression
+        buf.putInt(rowSize * size);      // biSizeImage
+        buf.putInt(0).putInt(0).putInt(0).putInt(0);
+        byte[] rest = new byte[buf.remaining()];
+        random.nextBytes(rest);
+        buf.put(rest);
+        return buf.array();
+    }
+
+    private static byte[] pngImage(int size, Random random) throws IOException {
+        BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+}
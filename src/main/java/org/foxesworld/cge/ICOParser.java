@@ -3,16 +3,20 @@ package org.foxesworld.cge;
 import org.foxesworld.cge.core.io.ByteParser;
 
 import javax.imageio.ImageIO;
-import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
 import java.awt.image.IndexColorModel;
 import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
 
 /**
  * High-performance ICO parser with advanced icon selection capabilities and efficient memory usage.
@@ -24,51 +28,70 @@ import java.util.concurrent.ConcurrentHashMap;
  *   <li>Multiple icon selection strategies (exact size, best fit, highest quality)</li>
  *   <li>Proper alpha channel and transparency handling</li>
  *   <li>Complete ICO directory information access</li>
- *   <li>Cached image loading for improved performance</li>
+ *   <li>Content-addressed image cache shared across files and parsers ({@link IconImageCache})</li>
  * </ul>
+ * <p>
+ * Data can be passed as a stream, a {@link ByteBuffer} or a {@link Path}; files are memory-mapped
+ * rather than read into the heap. {@link #parse(java.io.InputStream)} decodes every entry. To decode only the entries that are
+ * needed, read the directory with {@link #parseDirectory(InputStream)}, pick an entry from the
+ * returned {@link IcoDocument}, and call {@link IconHandle#decode()} on it:
+ * <pre>
+ * ICOParser parser = new ICOParser();
+ * IcoDocument document = parser.parseDirectory(in);
+ * BufferedImage icon = document.findBestMatch(256, 256).decode();
+ * </pre>
+ * The parser keeps no state between calls: everything about a file is in the returned document,
+ * which is immutable. One parser (and one document) can be used by any number of threads at
+ * once without locking.
  */
 public class ICOParser extends ByteParser<List<BufferedImage>> {
 
-    private static final int DEFAULT_CACHE_SIZE = 16;
+    /**
+     * Image property ({@link BufferedImage#getProperty(String)}) holding the bit depth of a BMP
+     * entry as an {@link Integer}. BMP entries of every depth decode to {@code TYPE_INT_ARGB},
+     * so the depth of the source cannot be told from the image itself.
+     */
+    public static final String BIT_DEPTH_PROPERTY = "ico.bitDepth";
 
-    // Cache for parsed icons to avoid repeated decoding of the same data
-    private final Map<IconKey, BufferedImage> imageCache;
+    private static final VarHandle LE_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
 
-    // Original ICO data and parsed directory entries
-    private byte[] icoData;
-    private List<IconDirEntry> entries;
+    // Cache for decoded icons, keyed by content so it can be shared between files and parsers
+    private final IconImageCache imageCache;
 
     /**
-     * Creates an ICO parser with default settings.
+     * Creates an ICO parser that uses the process-wide {@link IconImageCache#shared()} cache.
      */
     public ICOParser() {
-        this(DEFAULT_CACHE_SIZE);
+        this(IconImageCache.shared());
     }
 
     /**
-     * Creates an ICO parser with specified cache size.
+     * Creates an ICO parser with a private cache of roughly {@code cacheSize} 256x256 icons.
      *
-     * @param cacheSize maximum number of decoded images to cache
+     * @param cacheSize cache size in 256x256 ARGB icons; 0 means unbounded
      * @throws IllegalArgumentException if cacheSize is negative
+     * @deprecated the cache is limited by size in bytes now; use
+     * {@link #ICOParser(IconImageCache)} or the shared cache
      */
+    @Deprecated
     public ICOParser(int cacheSize) {
+        this(new IconImageCache(cacheSize == 0 ? Long.MAX_VALUE : checkCacheSize(cacheSize) * 256L * 256 * 4));
+    }
+
+    /**
+     * Creates an ICO parser that uses the given cache.
+     *
+     * @param imageCache cache for decoded images; {@link IconImageCache#disabled()} turns caching off
+     */
+    public ICOParser(IconImageCache imageCache) {
+        this.imageCache = Objects.requireNonNull(imageCache, "imageCache");
+    }
+
+    private static int checkCacheSize(int cacheSize) {
         if (cacheSize < 0) {
             throw new IllegalArgumentException("Cache size cannot be negative");
         }
-
-        if (cacheSize > 0) {
-            // Use LoadingCache pattern with size limit
-            imageCache = Collections.synchronizedMap(
-                    new LinkedHashMap<IconKey, BufferedImage>(16, 0.75f, true) {
-                        @Override
-                        protected boolean removeEldestEntry(Map.Entry<IconKey, BufferedImage> eldest) {
-                            return size() > cacheSize;
-                        }
-                    }
-            );
-        } else {
-            imageCache = new ConcurrentHashMap<>();
-        }
+        return cacheSize;
     }
 
     /**
@@ -80,94 +103,187 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
      */
     @Override
     protected List<BufferedImage> parseBytes(byte[] data) throws IOException {
-        if (data == null || data.length < 6) {
+        if (data == null) {
+            throw new IOException("Invalid ICO data: too short or null");
+        }
+        return parseBuffer(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Parses ICO data straight from a buffer (e.g. a memory-mapped file) without copying
+     * the file; only the bytes of each entry are copied while it is decoded.
+     */
+    @Override
+    protected List<BufferedImage> parseBuffer(ByteBuffer buffer) throws IOException {
+        return readDirectory(buffer).decodeAll();
+    }
+
+    /**
+     * Reads only the ICO directory. No image is decoded until {@link IconHandle#decode()}
+     * is called on one of the document's handles.
+     *
+     * @param inputStream the ICO file
+     * @return the directory, with one handle per entry in file order
+     * @throws IOException if reading fails or the directory is invalid
+     */
+    public IcoDocument parseDirectory(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("InputStream cannot be null");
+        }
+        return parseDirectory(inputStream.readAllBytes());
+    }
+
+    /**
+     * Reads only the ICO directory from raw ICO file bytes.
+     *
+     * @see #parseDirectory(InputStream)
+     */
+    public IcoDocument parseDirectory(byte[] data) throws IOException {
+        if (data == null) {
             throw new IOException("Invalid ICO data: too short or null");
         }
+        return readDirectory(ByteBuffer.wrap(data));
+    }
 
-        // Store data reference for later use when loading individual images
-        this.icoData = data;
+    /**
+     * Reads only the ICO directory from the data between position and limit of a buffer.
+     * The document keeps referring to the buffer's content, which must not change.
+     *
+     * @see #parseDirectory(InputStream)
+     */
+    public IcoDocument parseDirectory(ByteBuffer buffer) throws IOException {
+        return readDirectory(buffer);
+    }
 
-        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data))) {
-            // Read ICO header
-            int reserved = readLEShort(dis);
-            int type = readLEShort(dis);
-            int count = readLEShort(dis);
+    /**
+     * Reads only the ICO directory of a memory-mapped file.
+     *
+     * @see #parseDirectory(InputStream)
+     */
+    public IcoDocument parseDirectory(Path path) throws IOException {
+        return readDirectory(map(path));
+    }
 
-            if (reserved != 0 || (type != 1 && type != 2) || count <= 0 || count > 1024) {
+    /**
+     * Reads the ICO header and directory entries. Image data is only peeked at to tell
+     * PNG from BMP entries and to read their real size and bit depth.
+     */
+    private IcoDocument readDirectory(ByteBuffer buffer) throws IOException {
+        if (buffer == null || buffer.remaining() < 6) {
+            throw new IOException("Invalid ICO data: too short or null");
+        }
+        // Offsets in the directory are relative to the start of the file
+        ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int length = data.limit();
+
+        // Read ICO header
+        int reserved = data.getShort(0) & 0xFFFF;
+        int type = data.getShort(2) & 0xFFFF;
+        int count = data.getShort(4) & 0xFFFF;
+
+        if (reserved != 0 || (type != 1 && type != 2) || count <= 0 || count > 1024) {
+            throw new IOException(String.format(
+                    "Invalid ICO header: reserved=%d, type=%d, count=%d", reserved, type, count));
+        }
+        if (6 + 16 * count > length) {
+            throw new IOException("Invalid ICO data: directory of " + count + " entries is truncated");
+        }
+
+        // Read directory entries
+        List<IconHandle> directory = new ArrayList<>(count);
+        for (int i = 0, p = 6; i < count; i++, p += 16) {
+            int width = data.get(p) & 0xFF;
+            int height = data.get(p + 1) & 0xFF;
+            int colorCount = data.get(p + 2) & 0xFF;
+            int reserved2 = data.get(p + 3) & 0xFF;
+            int planes = data.getShort(p + 4) & 0xFFFF;
+            int bitCount = data.getShort(p + 6) & 0xFFFF;
+            int bytesInRes = data.getInt(p + 8);
+            int imageOffset = data.getInt(p + 12);
+
+            // Validate entry bounds
+            if (imageOffset < 0 || bytesInRes <= 0 ||
+                    (long) imageOffset + bytesInRes > length) {
                 throw new IOException(String.format(
-                        "Invalid ICO header: reserved=%d, type=%d, count=%d", reserved, type, count));
+                        "Invalid icon entry %d: offset=%d, size=%d exceeds data bounds (%d)",
+                        i, imageOffset, bytesInRes, length));
             }
 
-            // Read directory entries
-            entries = new ArrayList<>(count);
-            for (int i = 0; i < count; i++) {
-                int width = dis.readUnsignedByte();
-                int height = dis.readUnsignedByte();
-                int colorCount = dis.readUnsignedByte();
-                int reserved2 = dis.readUnsignedByte();
-                int planes = readLEShort(dis);
-                int bitCount = readLEShort(dis);
-                int bytesInRes = readLEInt(dis);
-                int imageOffset = readLEInt(dis);
-
-                // Validate entry bounds
-                if (imageOffset < 0 || bytesInRes <= 0 ||
-                        imageOffset + bytesInRes > data.length) {
-                    throw new IOException(String.format(
-                            "Invalid icon entry %d: offset=%d, size=%d exceeds data bounds (%d)",
-                            i, imageOffset, bytesInRes, data.length));
-                }
+            // ICO quirk: 0 means 256
+            int actualWidth = width == 0 ? 256 : width;
+            int actualHeight = height == 0 ? 256 : height;
 
-                // ICO quirk: 0 means 256
-                int actualWidth = width == 0 ? 256 : width;
-                int actualHeight = height == 0 ? 256 : height;
+            IconDirEntry entry = new IconDirEntry(
+                    actualWidth, actualHeight, colorCount, planes, bitCount,
+                    bytesInRes, imageOffset, reserved2
+            );
+            directory.add(new IconHandle(data, entry, describe(data, entry)));
+        }
 
-                entries.add(new IconDirEntry(
-                        actualWidth, actualHeight, colorCount, planes, bitCount,
-                        bytesInRes, imageOffset, reserved2
-                ));
-            }
+        return new IcoDocument(directory);
+    }
 
-            // Eagerly load all images
-            List<BufferedImage> images = new ArrayList<>(count);
-            for (IconDirEntry entry : entries) {
-                BufferedImage img = loadIconImage(entry);
-                if (img != null) {
-                    images.add(img);
-                }
+    /**
+     * Builds the public description of an entry. The size comes from the PNG IHDR chunk or
+     * the BMP header, since the directory cannot express sizes above 256; a zero bit count
+     * in the directory is replaced with the one from the image header.
+     */
+    private static IconInfo describe(ByteBuffer data, IconDirEntry entry) {
+        int offset = entry.imageOffset;
+        int width = entry.width;
+        int height = entry.height;
+        int bitDepth = entry.bitCount;
+        boolean png = isPng(data, offset, entry.bytesInRes);
+        if (png) {
+            if (entry.bytesInRes >= 24) {
+                width = Integer.reverseBytes(data.getInt(offset + 16));
+                height = Integer.reverseBytes(data.getInt(offset + 20));
+            }
+            if (bitDepth == 0) {
+                bitDepth = 32;
+            }
+        } else if (entry.bytesInRes >= 16) {
+            int bmpWidth = data.getInt(offset + 4);
+            int bmpHeight = data.getInt(offset + 8) / 2; // image + AND mask
+            if (bmpWidth > 0 && bmpHeight > 0) {
+                width = bmpWidth;
+                height = bmpHeight;
+            }
+            if (bitDepth == 0) {
+                bitDepth = data.getShort(offset + 14) & 0xFFFF;
             }
-
-            return images;
         }
+        return new IconInfo(width, height, bitDepth, entry.colorCount, png ? "PNG" : "BMP", entry.bytesInRes);
     }
 
     /**
      * Loads a specific icon entry as a BufferedImage.
      *
+     * @param data  the ICO file the entry belongs to
      * @param entry the icon directory entry to load
      * @return the decoded BufferedImage or null if decoding fails
      * @throws IOException if reading fails
      */
-    private BufferedImage loadIconImage(IconDirEntry entry) throws IOException {
-        if (icoData == null) {
-            throw new IllegalStateException("ICO data not loaded. Call parseBytes() first.");
-        }
-
+    private BufferedImage loadIconImage(ByteBuffer data, IconDirEntry entry) throws IOException {
         // Check cache first
-        IconKey key = new IconKey(entry.width, entry.height, entry.bitCount);
-        BufferedImage cached = imageCache.get(key);
-        if (cached != null) {
-            return cached;
+        IconImageCache.Key key = null;
+        if (imageCache.isEnabled()) {
+            key = IconImageCache.key(data, entry.imageOffset, entry.bytesInRes,
+                    entry.width, entry.height, entry.bitCount);
+            BufferedImage cached = imageCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
         }
 
         // Extract image data
-        byte[] imageData = extractImageData(entry);
+        byte[] imageData = extractImageData(data, entry);
 
         // Decode image based on format
         BufferedImage img = decodeIconImage(imageData, entry);
 
         // Cache the result if successful
-        if (img != null) {
+        if (img != null && key != null) {
             imageCache.put(key, img);
         }
 
@@ -177,12 +293,13 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
     /**
      * Extracts image data for a specific icon entry.
      *
+     * @param data  the ICO file the entry belongs to
      * @param entry the icon directory entry
      * @return byte array containing the image data
      */
-    private byte[] extractImageData(IconDirEntry entry) {
+    private static byte[] extractImageData(ByteBuffer data, IconDirEntry entry) {
         byte[] imageData = new byte[entry.bytesInRes];
-        System.arraycopy(icoData, entry.imageOffset, imageData, 0, entry.bytesInRes);
+        data.get(entry.imageOffset, imageData);
         return imageData;
     }
 
@@ -197,7 +314,7 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
     private BufferedImage decodeIconImage(byte[] imageData, IconDirEntry entry) throws IOException {
         try {
             // Check for PNG signature
-            if (isPng(imageData)) {
+            if (isPng(ByteBuffer.wrap(imageData), 0, imageData.length)) {
                 return decodePng(imageData);
             } else {
                 return decodeBmp(imageData, entry);
@@ -225,7 +342,10 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
     }
 
     /**
-     * Decodes a BMP-like icon from its raw data.
+     * Decodes a BMP-like icon from its raw data. Rows are decoded in bulk straight from the
+     * byte array into the {@link DataBufferInt} of an ARGB image; palettes are expanded to
+     * ARGB. The AND mask makes pixels transparent for 1-, 4-, 8- and 24-bit icons, 32-bit
+     * icons use their alpha channel. A truncated AND mask is ignored.
      *
      * @param data the raw BMP-like data
      * @param entry the icon directory entry
@@ -233,291 +353,180 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
      * @throws IOException if decoding fails
      */
     private BufferedImage decodeBmp(byte[] data, IconDirEntry entry) throws IOException {
-        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data))) {
-            int headerSize = readLEInt(dis);
+        if (data.length < 16) {
+            throw new IOException("Truncated BMP header");
+        }
+        int headerSize = readLEInt(data, 0);
 
-            // Handle different DIB header types
-            if (headerSize < 12) {
-                throw new IOException("Invalid BMP header size: " + headerSize);
-            }
+        // Handle different DIB header types
+        if (headerSize < 12) {
+            throw new IOException("Invalid BMP header size: " + headerSize);
+        }
 
-            int width = readLEInt(dis);
-            int heightWithMask = readLEInt(dis);
-            int height = heightWithMask / 2; // Real height excludes AND mask
+        int width = readLEInt(data, 4);
+        int heightWithMask = readLEInt(data, 8);
+        int height = heightWithMask / 2; // Real height excludes AND mask
 
-            // Some ICO files have incorrect height values (should be 2x actual)
-            if (height != entry.height && heightWithMask == entry.height) {
-                height = entry.height;
-            }
+        // Some ICO files have incorrect height values (should be 2x actual)
+        if (height != entry.height && heightWithMask == entry.height) {
+            height = entry.height;
+        }
 
-            int planes = readLEShort(dis);
-            int bitCount = readLEShort(dis);
+        int bitCount = readLEShort(data, 14);
 
-            // Sanity checks
-            if (width <= 0 || height <= 0 || width > 1024 || height > 1024) {
-                throw new IOException(String.format(
-                        "Invalid dimensions: %dx%d", width, height));
-            }
+        // Sanity checks
+        if (width <= 0 || height <= 0 || width > 1024 || height > 1024) {
+            throw new IOException(String.format(
+                    "Invalid dimensions: %dx%d", width, height));
+        }
+        if (bitCount != 1 && bitCount != 4 && bitCount != 8 && bitCount != 24 && bitCount != 32) {
+            throw new IOException("Unsupported bit depth: " + bitCount);
+        }
 
-            // Handle different bit depths
-            switch (bitCount) {
-                case 1:
-                    return decode1BitBmp(dis, width, height);
-                case 4:
-                    return decode4BitBmp(dis, width, height);
-                case 8:
-                    return decode8BitBmp(dis, width, height);
-                case 24:
-                case 32:
-                    // Skip compression and other header fields
-                    dis.skipBytes(headerSize - 16);
-                    return decodeTrueColorBmp(dis, width, height, bitCount);
-                default:
-                    throw new IOException("Unsupported bit depth: " + bitCount);
+        // Palette (BGRX) follows the header for indexed images
+        int pixelOffset = headerSize;
+        int[] palette = null;
+        if (bitCount <= 8) {
+            palette = new int[1 << bitCount];
+            Arrays.fill(palette, 0xFF000000);
+            int colors = palette.length;
+            int colorsUsed = headerSize >= 36 ? readLEInt(data, 32) : 0;
+            if (colorsUsed > 0 && colorsUsed < colors) {
+                colors = colorsUsed;
+            }
+            if (pixelOffset + colors * 4 > data.length) {
+                throw new IOException("Truncated BMP palette");
             }
+            for (int i = 0; i < colors; i++) {
+                palette[i] = 0xFF000000 | (readLEInt(data, pixelOffset + i * 4) & 0x00FFFFFF);
+            }
+            pixelOffset += colors * 4;
         }
-    }
-
-    /**
-     * Decodes a 1-bit BMP icon.
-     */
-    private BufferedImage decode1BitBmp(DataInputStream dis, int width, int height) throws IOException {
-        // Skip rest of header
-        dis.skipBytes(24);
 
-        // Read 2-color palette
-        byte[] reds = new byte[2];
-        byte[] greens = new byte[2];
-        byte[] blues = new byte[2];
-
-        for (int i = 0; i < 2; i++) {
-            int b = dis.readUnsignedByte();
-            int g = dis.readUnsignedByte();
-            int r = dis.readUnsignedByte();
-            dis.readByte(); // reserved
-            blues[i] = (byte) b;
-            greens[i] = (byte) g;
-            reds[i] = (byte) r;
+        // Rows are padded to a 4-byte boundary and stored bottom to top
+        int stride = ((width * bitCount + 31) / 32) * 4;
+        int maskOffset = pixelOffset + stride * height;
+        if (maskOffset > data.length) {
+            throw new IOException("Truncated BMP pixel data");
         }
 
-        // Create indexed color model
-        IndexColorModel colorModel = new IndexColorModel(1, 2, reds, greens, blues);
-        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY, colorModel);
-
-        // Calculate row stride (padded to 4-byte boundary)
-        int rowSize = ((width + 31) / 32) * 4;
-        byte[] row = new byte[rowSize];
-
-        // BMP rows are stored bottom to top
-        for (int y = height - 1; y >= 0; y--) {
-            dis.readFully(row, 0, rowSize);
-            // Set each row of data
-            img.getRaster().setDataElements(0, y, width, 1, row);
+        // TYPE_INT_ARGB, created through the raster constructor to carry the source bit depth
+        ColorModel cm = ColorModel.getRGBdefault();
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put(BIT_DEPTH_PROPERTY, bitCount);
+        BufferedImage img = new BufferedImage(cm, cm.createCompatibleWritableRaster(width, height), false, properties);
+        int[] argb = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            int src = pixelOffset + (height - 1 - y) * stride;
+            int dst = y * width;
+            switch (bitCount) {
+                case 1 -> decode1BitRow(data, src, palette, argb, dst, width);
+                case 4 -> decode4BitRow(data, src, palette, argb, dst, width);
+                case 8 -> decode8BitRow(data, src, palette, argb, dst, width);
+                case 24 -> decode24BitRow(data, src, argb, dst, width);
+                default -> decode32BitRow(data, src, argb, dst, width);
+            }
         }
 
-        // Skip the AND mask
-        int maskRowSize = ((width + 31) / 32) * 4;
-        dis.skipBytes(maskRowSize * height);
-
+        if (bitCount != 32) {
+            applyAndMask(data, maskOffset, argb, width, height);
+        }
         return img;
     }
 
-    /**
-     * Decodes a 4-bit BMP icon.
-     */
-    private BufferedImage decode4BitBmp(DataInputStream dis, int width, int height) throws IOException {
-        // Skip rest of header
-        dis.skipBytes(24);
-
-        // Read 16-color palette
-        byte[] reds = new byte[16];
-        byte[] greens = new byte[16];
-        byte[] blues = new byte[16];
-
-        for (int i = 0; i < 16; i++) {
-            int b = dis.readUnsignedByte();
-            int g = dis.readUnsignedByte();
-            int r = dis.readUnsignedByte();
-            dis.readByte(); // reserved
-            blues[i] = (byte) b;
-            greens[i] = (byte) g;
-            reds[i] = (byte) r;
-        }
-
-        // Create indexed color model
-        IndexColorModel colorModel = new IndexColorModel(4, 16, reds, greens, blues);
-        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
-
-        // Calculate row stride (padded to 4-byte boundary)
-        int rowSize = ((width * 4 + 31) / 32) * 4;
-        byte[] row = new byte[rowSize];
-
-        // BMP rows are stored bottom to top
-        for (int y = height - 1; y >= 0; y--) {
-            dis.readFully(row, 0, rowSize);
-            // Set each row of data
-            img.getRaster().setDataElements(0, y, width, 1, row);
+    private static void decode1BitRow(byte[] data, int src, int[] palette, int[] argb, int dst, int width) {
+        int x = 0;
+        for (; x + 8 <= width; x += 8) {
+            int bits = data[src + (x >> 3)];
+            argb[dst + x] = palette[(bits >> 7) & 1];
+            argb[dst + x + 1] = palette[(bits >> 6) & 1];
+            argb[dst + x + 2] = palette[(bits >> 5) & 1];
+            argb[dst + x + 3] = palette[(bits >> 4) & 1];
+            argb[dst + x + 4] = palette[(bits >> 3) & 1];
+            argb[dst + x + 5] = palette[(bits >> 2) & 1];
+            argb[dst + x + 6] = palette[(bits >> 1) & 1];
+            argb[dst + x + 7] = palette[bits & 1];
+        }
+        for (; x < width; x++) {
+            argb[dst + x] = palette[(data[src + (x >> 3)] >> (7 - (x & 7))) & 1];
         }
-
-        // Skip the AND mask
-        int maskRowSize = ((width + 31) / 32) * 4;
-        dis.skipBytes(maskRowSize * height);
-
-        return img;
     }
 
-    /**
-     * Decodes an 8-bit BMP icon.
-     */
-    private BufferedImage decode8BitBmp(DataInputStream dis, int width, int height) throws IOException {
-        // Skip compression and other header fields
-        dis.skipBytes(24);
-
-        // Read 256-color palette
-        byte[] reds = new byte[256];
-        byte[] greens = new byte[256];
-        byte[] blues = new byte[256];
-
-        for (int i = 0; i < 256; i++) {
-            int b = dis.readUnsignedByte();
-            int g = dis.readUnsignedByte();
-            int r = dis.readUnsignedByte();
-            dis.readByte(); // reserved
-            blues[i] = (byte) b;
-            greens[i] = (byte) g;
-            reds[i] = (byte) r;
+    private static void decode4BitRow(byte[] data, int src, int[] palette, int[] argb, int dst, int width) {
+        int x = 0;
+        for (; x + 2 <= width; x += 2) {
+            int b = data[src + (x >> 1)];
+            argb[dst + x] = palette[(b >> 4) & 0xF];
+            argb[dst + x + 1] = palette[b & 0xF];
         }
-
-        // Create indexed color model
-        IndexColorModel colorModel = new IndexColorModel(8, 256, reds, greens, blues);
-        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
-
-        // Calculate row stride (padded to 4-byte boundary)
-        int rowSize = ((width * 8 + 31) / 32) * 4;
-        byte[] pixels = new byte[width * height];
-        byte[] row = new byte[rowSize];
-
-        // BMP rows are stored bottom to top
-        for (int y = height - 1; y >= 0; y--) {
-            dis.readFully(row, 0, rowSize);
-            System.arraycopy(row, 0, pixels, y * width, width);
+        if (x < width) {
+            argb[dst + x] = palette[(data[src + (x >> 1)] >> 4) & 0xF];
         }
-
-        img.getRaster().setDataElements(0, 0, width, height, pixels);
-
-        // Skip the AND mask
-        int maskRowSize = ((width + 31) / 32) * 4;
-        dis.skipBytes(maskRowSize * height);
-
-        return img;
     }
 
-    /**
-     * Decodes a 24-bit or 32-bit true color BMP icon.
-     */
-    private BufferedImage decodeTrueColorBmp(DataInputStream dis, int width, int height, int bitCount) throws IOException {
-        boolean hasAlpha = bitCount == 32;
-
-        // RGB(A) image
-        BufferedImage img = new BufferedImage(width, height,
-                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
-
-        // Calculate row stride (padded to 4-byte boundary)
-        int bytesPerPixel = bitCount / 8;
-        int rowSize = ((width * bitCount + 31) / 32) * 4;
-        byte[] row = new byte[rowSize];
-
-        // BMP rows are stored bottom to top
-        for (int y = height - 1; y >= 0; y--) {
-            dis.readFully(row, 0, rowSize);
-            for (int x = 0; x < width; x++) {
-                int offset = x * bytesPerPixel;
-                if (offset + bytesPerPixel > row.length) break;
-
-                int b = row[offset] & 0xFF;
-                int g = row[offset + 1] & 0xFF;
-                int r = row[offset + 2] & 0xFF;
-                int a = hasAlpha ? (row[offset + 3] & 0xFF) : 255;
-                int argb = (a << 24) | (r << 16) | (g << 8) | b;
-
-                img.setRGB(x, y, argb);
-            }
+    private static void decode8BitRow(byte[] data, int src, int[] palette, int[] argb, int dst, int width) {
+        for (int x = 0; x < width; x++) {
+            argb[dst + x] = palette[data[src + x] & 0xFF];
         }
+    }
 
-        // If 24-bit, apply the AND mask for transparency
-        if (!hasAlpha) {
-            applyAndMask(dis, img, width, height);
+    private static void decode24BitRow(byte[] data, int src, int[] argb, int dst, int width) {
+        for (int x = 0, p = src; x < width; x++, p += 3) {
+            argb[dst + x] = 0xFF000000 | (data[p + 2] & 0xFF) << 16 | (data[p + 1] & 0xFF) << 8 | (data[p] & 0xFF);
         }
+    }
 
-        return img;
+    private static void decode32BitRow(byte[] data, int src, int[] argb, int dst, int width) {
+        for (int x = 0, p = src; x < width; x++, p += 4) {
+            argb[dst + x] = (int) LE_INT.get(data, p); // BGRA in memory is ARGB little-endian
+        }
     }
 
     /**
-     * Applies AND mask (transparency mask) to an image.
+     * Applies the AND mask (1 = transparent) to decoded ARGB pixels. Mask rows are 1 bit per
+     * pixel, padded to a 4-byte boundary and stored bottom to top. A truncated mask is ignored,
+     * which is common for some ICO files.
      */
-    private void applyAndMask(DataInputStream dis, BufferedImage img, int width, int height) throws IOException {
-        try {
-            // Calculate mask row stride (padded to 4-byte boundary)
-            int maskRowSize = ((width + 31) / 32) * 4;
-            byte[] maskRow = new byte[maskRowSize];
-
-            // Create a new ARGB image
-            BufferedImage argbImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-
-            // BMP rows are stored bottom to top
-            for (int y = height - 1; y >= 0; y--) {
-                dis.readFully(maskRow, 0, maskRowSize);
-                for (int x = 0; x < width; x++) {
-                    int byteIndex = x / 8;
-                    int bitIndex = 7 - (x % 8);
-
-                    if (byteIndex >= maskRow.length) {
-                        continue;
-                    }
-
-                    // Get RGB from original image
-                    int rgb = img.getRGB(x, y);
-
-                    // Check if bit is set in mask (1 = transparent)
-                    boolean isTransparent = ((maskRow[byteIndex] >> bitIndex) & 1) == 1;
-
-                    // Apply transparency if mask bit is set
-                    if (isTransparent) {
-                        argbImg.setRGB(x, y, rgb & 0x00FFFFFF); // Set alpha to 0
-                    } else {
-                        argbImg.setRGB(x, y, rgb | 0xFF000000); // Set alpha to 255
-                    }
+    private static void applyAndMask(byte[] data, int offset, int[] argb, int width, int height) {
+        int stride = ((width + 31) / 32) * 4;
+        if (offset + (long) stride * height > data.length) {
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            int src = offset + (height - 1 - y) * stride;
+            int dst = y * width;
+            for (int x = 0; x < width; x += 8) {
+                int bits = data[src + (x >> 3)] & 0xFF;
+                if (bits == 0) {
+                    continue;
                 }
-            }
-
-            // Copy ARGB image data back to original image
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    img.setRGB(x, y, argbImg.getRGB(x, y));
+                int n = Math.min(8, width - x);
+                for (int i = 0; i < n; i++) {
+                    // branchless: keeps alpha where the bit is 0, clears it where it is 1
+                    argb[dst + x + i] &= 0x00FFFFFF | (((bits >> (7 - i)) & 1) - 1);
                 }
             }
-        } catch (IOException e) {
-            // If mask reading fails, just keep the original image
-            // This is common for some ICO files with truncated masks
         }
     }
 
     /**
-     * Checks if the byte array contains a PNG image.
+     * Checks if a range of the byte array contains a PNG image.
      *
-     * @param data the image data
+     * @param data   the image data
+     * @param offset start of the image
+     * @param length length of the image
      * @return true if data has PNG signature
      */
-    private static boolean isPng(byte[] data) {
-        return data.length >= 8
-                && (data[0] & 0xFF) == 0x89
-                && data[1] == 0x50  // P
-                && data[2] == 0x4E  // N
-                && data[3] == 0x47  // G
-                && data[4] == 0x0D
-                && data[5] == 0x0A
-                && data[6] == 0x1A
-                && data[7] == 0x0A;
+    private static boolean isPng(ByteBuffer data, int offset, int length) {
+        return length >= 8
+                && (data.get(offset) & 0xFF) == 0x89
+                && data.get(offset + 1) == 0x50  // P
+                && data.get(offset + 2) == 0x4E  // N
+                && data.get(offset + 3) == 0x47  // G
+                && data.get(offset + 4) == 0x0D
+                && data.get(offset + 5) == 0x0A
+                && data.get(offset + 6) == 0x1A
+                && data.get(offset + 7) == 0x0A;
     }
 
     /**
@@ -530,21 +539,7 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
      * @throws IllegalArgumentException if width or height is negative
      */
     public BufferedImage getIconExactSize(List<BufferedImage> icons, int width, int height) {
-        if (width < 0 || height < 0) {
-            throw new IllegalArgumentException("Width and height must be non-negative");
-        }
-
-        if (icons == null || icons.isEmpty()) {
-            return null;
-        }
-
-        for (BufferedImage icon : icons) {
-            if (icon.getWidth() == width && icon.getHeight() == height) {
-                return icon;
-            }
-        }
-
-        return null;
+        return exactSize(icons, BufferedImage::getWidth, BufferedImage::getHeight, width, height);
     }
 
     /**
@@ -559,6 +554,65 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
      * @throws IllegalArgumentException if width or height is negative
      */
     public BufferedImage getBestMatchingIcon(List<BufferedImage> icons, int width, int height) {
+        return bestMatch(icons, BufferedImage::getWidth, BufferedImage::getHeight, width, height);
+    }
+
+    /**
+     * Finds a directory entry with exact dimensions without decoding any image.
+     *
+     * @param handles entries from {@link IcoDocument#handles()}
+     * @param width desired width
+     * @param height desired height
+     * @return matching entry or null if none found
+     * @throws IllegalArgumentException if width or height is negative
+     * @see #getIconExactSize(List, int, int)
+     */
+    public IconHandle findExactSize(List<IconHandle> handles, int width, int height) {
+        return exactSize(handles, IconHandle::width, IconHandle::height, width, height);
+    }
+
+    /**
+     * Finds the best matching directory entry for the given dimensions without decoding
+     * any image. Uses the same rules as {@link #getBestMatchingIcon(List, int, int)}.
+     *
+     * @param handles entries from {@link IcoDocument#handles()}
+     * @param width desired width
+     * @param height desired height
+     * @return best matching entry or null if no entries available
+     * @throws IllegalArgumentException if width or height is negative
+     */
+    public IconHandle findBestMatch(List<IconHandle> handles, int width, int height) {
+        return bestMatch(handles, IconHandle::width, IconHandle::height, width, height);
+    }
+
+    /**
+     * Finds the directory entry with the highest quality (based on bit depth and dimensions)
+     * without decoding any image.
+     *
+     * @param handles entries from {@link IcoDocument#handles()}
+     * @return highest quality entry or null if none available
+     */
+    public IconHandle findHighestQuality(List<IconHandle> handles) {
+        return highestQuality(handles);
+    }
+
+    static IconHandle highestQuality(List<IconHandle> handles) {
+        if (handles == null || handles.isEmpty()) {
+            return null;
+        }
+
+        IconHandle best = handles.get(0);
+        for (IconHandle handle : handles) {
+            if (scoreQuality(handle.width(), handle.height(), handle.bitDepth())
+                    > scoreQuality(best.width(), best.height(), best.bitDepth())) {
+                best = handle;
+            }
+        }
+        return best;
+    }
+
+    static <T> T exactSize(List<T> icons, ToIntFunction<T> widthOf, ToIntFunction<T> heightOf,
+                                   int width, int height) {
         if (width < 0 || height < 0) {
             throw new IllegalArgumentException("Width and height must be non-negative");
         }
@@ -567,19 +621,30 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
             return null;
         }
 
+        for (T icon : icons) {
+            if (widthOf.applyAsInt(icon) == width && heightOf.applyAsInt(icon) == height) {
+                return icon;
+            }
+        }
+
+        return null;
+    }
+
+    static <T> T bestMatch(List<T> icons, ToIntFunction<T> widthOf, ToIntFunction<T> heightOf,
+                                   int width, int height) {
         // First try exact match
-        BufferedImage exactMatch = getIconExactSize(icons, width, height);
-        if (exactMatch != null) {
+        T exactMatch = exactSize(icons, widthOf, heightOf, width, height);
+        if (exactMatch != null || icons == null) {
             return exactMatch;
         }
 
         // Try to find closest match
-        BufferedImage bestMatch = null;
+        T bestMatch = null;
         int bestScore = Integer.MAX_VALUE;
 
-        for (BufferedImage icon : icons) {
-            int iconWidth = icon.getWidth();
-            int iconHeight = icon.getHeight();
+        for (T icon : icons) {
+            int iconWidth = widthOf.applyAsInt(icon);
+            int iconHeight = heightOf.applyAsInt(icon);
 
             // Calculate score (lower is better)
             // We prefer larger icons over smaller ones, since downscaling looks better than upscaling
@@ -603,6 +668,8 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
 
     /**
      * Gets the icon with the highest quality (based on bit depth and dimensions).
+     * The bit depth of BMP entries is taken from {@link #BIT_DEPTH_PROPERTY}; to choose
+     * without decoding every entry use {@link IcoDocument#findHighestQuality()}.
      *
      * @param icons list of icons
      * @return highest quality icon or null if none available
@@ -626,58 +693,6 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
         return bestIcon;
     }
 
-    /**
-     * Gets all available icon sizes in this ICO file.
-     *
-     * @return set of dimensions for all icons
-     */
-    public Set<Dimension> getAvailableSizes() {
-        if (entries == null) {
-            return Collections.emptySet();
-        }
-
-        Set<Dimension> sizes = new HashSet<>();
-        for (IconDirEntry entry : entries) {
-            sizes.add(new Dimension(entry.width, entry.height));
-        }
-        return sizes;
-    }
-
-    /**
-     * Gets the meta-information for all icons in this ICO file.
-     * This doesn't decode the actual image data.
-     *
-     * @return list of icon information entries
-     */
-    public List<IconInfo> getIconInfo() {
-        if (entries == null) {
-            return Collections.emptyList();
-        }
-
-        List<IconInfo> info = new ArrayList<>(entries.size());
-        for (IconDirEntry entry : entries) {
-            boolean isPngIcon = false;
-            if (icoData != null) {
-                try {
-                    byte[] imageData = extractImageData(entry);
-                    isPngIcon = isPng(imageData);
-                } catch (Exception ignored) {
-                    // If we can't determine the format, assume it's not PNG
-                }
-            }
-
-            info.add(new IconInfo(
-                    entry.width,
-                    entry.height,
-                    entry.bitCount,
-                    entry.colorCount,
-                    isPngIcon ? "PNG" : "BMP",
-                    entry.bytesInRes
-            ));
-        }
-        return info;
-    }
-
     /**
      * Gets the largest icon (by area).
      *
@@ -715,21 +730,26 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
             return 0;
         }
 
-        int area = icon.getWidth() * icon.getHeight();
-        int colorDepth = getEffectiveBitDepth(icon);
+        return scoreQuality(icon.getWidth(), icon.getHeight(), getEffectiveBitDepth(icon));
+    }
 
+    private static int scoreQuality(int width, int height, int colorDepth) {
         // Scoring formula: area * sqrt(colorDepth)
         // This gives reasonable weight to both factors
-        return (int)(area * Math.sqrt(colorDepth));
+        return (int)(width * height * Math.sqrt(colorDepth));
     }
 
     /**
-     * Gets the effective bit depth of an image.
+     * Gets the effective bit depth of an image: the source depth of a decoded BMP entry,
+     * otherwise the depth implied by its color model.
      *
      * @param image the image
      * @return bit depth (1, 4, 8, 24, or 32)
      */
     private int getEffectiveBitDepth(BufferedImage image) {
+        if (image.getProperty(BIT_DEPTH_PROPERTY) instanceof Integer bitDepth) {
+            return bitDepth;
+        }
         ColorModel cm = image.getColorModel();
 
         if (cm instanceof IndexColorModel) {
@@ -745,7 +765,7 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
     }
 
     /**
-     * Clears the image cache.
+     * Clears the image cache. With the default shared cache this affects all parsers.
      */
     public void clearCache() {
         imageCache.clear();
@@ -754,21 +774,64 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
     /**
      * Reads a little-endian short.
      */
-    private static int readLEShort(DataInputStream dis) throws IOException {
-        int b1 = dis.readUnsignedByte();
-        int b2 = dis.readUnsignedByte();
-        return (b2 << 8) | b1;
+    private static int readLEShort(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
     }
 
     /**
      * Reads a little-endian int.
      */
-    private static int readLEInt(DataInputStream dis) throws IOException {
-        int b1 = dis.readUnsignedByte();
-        int b2 = dis.readUnsignedByte();
-        int b3 = dis.readUnsignedByte();
-        int b4 = dis.readUnsignedByte();
-        return (b4 << 24) | (b3 << 16) | (b2 << 8) | b1;
+    private static int readLEInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8
+                | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * A directory entry that has not been decoded yet. Holds a reference to the ICO data
+     * (not a copy, possibly a memory-mapped file), so handles are cheap; the image is decoded by {@link #decode()} through
+     * the parser's image cache. Handles are immutable and can be decoded from several threads at once.
+     */
+    public final class IconHandle {
+        private final ByteBuffer data;
+        private final IconDirEntry entry;
+        private final IconInfo info;
+
+        private IconHandle(ByteBuffer data, IconDirEntry entry, IconInfo info) {
+            this.data = data;
+            this.entry = entry;
+            this.info = info;
+        }
+
+        public IconInfo info() {
+            return info;
+        }
+
+        public int width() {
+            return info.width();
+        }
+
+        public int height() {
+            return info.height();
+        }
+
+        public int bitDepth() {
+            return info.bitDepth();
+        }
+
+        /**
+         * Decodes this entry.
+         *
+         * @return the decoded image
+         * @throws IOException if the entry cannot be decoded
+         */
+        public BufferedImage decode() throws IOException {
+            return loadIconImage(data, entry);
+        }
+
+        @Override
+        public String toString() {
+            return info.toString();
+        }
     }
 
     /**
@@ -809,17 +872,6 @@ public class ICOParser extends ByteParser<List<BufferedImage>> {
         }
     }
 
-    /**
-     * Key for image cache lookup.
-     */
-    private record IconKey(
-            int width,
-            int height,
-            int bitDepth
-    ) {
-        // Uses default implementation of equals() and hashCode()
-    }
-
     /**
      * Helper class for dynamic byte buffer management.
      */
@@ -0,0 +1,123 @@
+package org.foxesworld.cge;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The directory of one ICO file, as read by {@link ICOParser#parseDirectory(java.io.InputStream)}.
+ * <p>
+ * A document is immutable: it holds the directory entries and a reference to the file data,
+ * and images are decoded lazily by {@link ICOParser.IconHandle#decode()}. Decoding only reads
+ * the data and goes through the thread-safe {@link IconImageCache}, so a document and its
+ * handles can be shared between threads without locking. The data must not be modified
+ * while the document is in use.
+ */
+public final class IcoDocument {
+
+    private final List<ICOParser.IconHandle> handles;
+    private final List<ICOParser.IconInfo> info;
+
+    IcoDocument(List<ICOParser.IconHandle> handles) {
+        this.handles = List.copyOf(handles);
+        List<ICOParser.IconInfo> info = new ArrayList<>(handles.size());
+        for (ICOParser.IconHandle handle : handles) {
+            info.add(handle.info());
+        }
+        this.info = List.copyOf(info);
+    }
+
+    /**
+     * @return the directory entries in file order; the list cannot be modified
+     */
+    public List<ICOParser.IconHandle> handles() {
+        return handles;
+    }
+
+    /**
+     * @return number of entries in the directory
+     */
+    public int size() {
+        return handles.size();
+    }
+
+    /**
+     * Gets the meta-information for all icons in this ICO file.
+     * This doesn't decode the actual image data.
+     *
+     * @return list of icon information entries; the list cannot be modified
+     */
+    public List<ICOParser.IconInfo> getIconInfo() {
+        return info;
+    }
+
+    /**
+     * Gets all available icon sizes in this ICO file, in file order.
+     *
+     * @return a new set of dimensions for all icons
+     */
+    public Set<Dimension> getAvailableSizes() {
+        Set<Dimension> sizes = new LinkedHashSet<>();
+        for (ICOParser.IconHandle handle : handles) {
+            sizes.add(new Dimension(handle.width(), handle.height()));
+        }
+        return sizes;
+    }
+
+    /**
+     * Finds an entry with exact dimensions without decoding any image.
+     *
+     * @return matching entry or null if none found
+     * @throws IllegalArgumentException if width or height is negative
+     */
+    public ICOParser.IconHandle findExactSize(int width, int height) {
+        return ICOParser.exactSize(handles, ICOParser.IconHandle::width, ICOParser.IconHandle::height, width, height);
+    }
+
+    /**
+     * Finds the best matching entry for the given dimensions without decoding any image.
+     * Uses the same rules as {@link ICOParser#getBestMatchingIcon(List, int, int)}.
+     *
+     * @return best matching entry or null if the directory is empty
+     * @throws IllegalArgumentException if width or height is negative
+     */
+    public ICOParser.IconHandle findBestMatch(int width, int height) {
+        return ICOParser.bestMatch(handles, ICOParser.IconHandle::width, ICOParser.IconHandle::height, width, height);
+    }
+
+    /**
+     * Finds the entry with the highest quality (based on bit depth and dimensions)
+     * without decoding any image.
+     *
+     * @return highest quality entry or null if the directory is empty
+     */
+    public ICOParser.IconHandle findHighestQuality() {
+        return ICOParser.highestQuality(handles);
+    }
+
+    /**
+     * Decodes every entry, in file order.
+     *
+     * @return the decoded images
+     * @throws IOException if an entry cannot be decoded
+     */
+    public List<BufferedImage> decodeAll() throws IOException {
+        List<BufferedImage> images = new ArrayList<>(handles.size());
+        for (ICOParser.IconHandle handle : handles) {
+            BufferedImage img = handle.decode();
+            if (img != null) {
+                images.add(img);
+            }
+        }
+        return images;
+    }
+
+    @Override
+    public String toString() {
+        return "IcoDocument" + info;
+    }
+}
@@ -0,0 +1,209 @@
+package org.foxesworld.cge;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of decoded icon images, addressed by content.
+ * <p>
+ * Entries are keyed by a 64-bit hash of the encoded image bytes together with their length,
+ * dimensions and bit depth, so the same icon is decoded once no matter which file, parser
+ * or window it comes from, and different icons of the same size never collide in practice.
+ * <p>
+ * Reads are lock-free. When the total size of the cached images exceeds the byte budget,
+ * the least recently used entries are evicted; an image larger than the whole budget is not
+ * cached. Cached images are shared between callers and must not be modified.
+ * <p>
+ * The shared instance ({@link #shared()}) has a budget of {@code cgtex.iconCache.maxBytes}
+ * bytes (32 MB by default).
+ */
+public final class IconImageCache {
+
+    private static final long DEFAULT_MAX_BYTES = 32L << 20;
+    private static final IconImageCache SHARED =
+            new IconImageCache(Long.getLong("cgtex.iconCache.maxBytes", DEFAULT_MAX_BYTES));
+    private static final IconImageCache DISABLED = new IconImageCache(0);
+
+    private static final long K1 = 0x9E3779B97F4A7C15L;
+    private static final long K2 = 0xC2B2AE3D27D4EB4FL;
+
+    /**
+     * Content key of an encoded icon image.
+     */
+    public record Key(long hash, int length, int width, int height, int bitCount) {
+    }
+
+    /**
+     * Cache counters at the time of the {@link #stats()} call.
+     */
+    public record Stats(long hits, long misses, long evictions, long bytes, long maxBytes, int entries) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private static final class Entry {
+        final BufferedImage image;
+        final long bytes;
+        volatile long lastAccess;
+
+        Entry(BufferedImage image, long bytes, long lastAccess) {
+            this.image = image;
+            this.bytes = bytes;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final long maxBytes;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes byte budget; 0 disables caching
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public IconImageCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cache shared by all parsers created without an explicit cache
+     */
+    public static IconImageCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return a cache that never stores anything, e.g. to measure decoding
+     */
+    public static IconImageCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return false if this cache never stores images, so callers can skip computing keys
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Computes the key of an encoded image stored in {@code data[offset, offset + length)}.
+     */
+    public static Key key(byte[] data, int offset, int length, int width, int height, int bitCount) {
+        return key(ByteBuffer.wrap(data), offset, length, width, height, bitCount);
+    }
+
+    /**
+     * Computes the key of an encoded image stored at absolute positions
+     * {@code [offset, offset + length)} of a buffer, e.g. a memory-mapped file.
+     */
+    public static Key key(ByteBuffer data, int offset, int length, int width, int height, int bitCount) {
+        return new Key(hash(data, offset, length), length, width, height, bitCount);
+    }
+
+    /**
+     * @return the cached image or null
+     */
+    public BufferedImage get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = clock.incrementAndGet();
+        hits.increment();
+        return entry.image;
+    }
+
+    /**
+     * Stores an image, evicting least recently used entries if the budget is exceeded.
+     */
+    public void put(Key key, BufferedImage image) {
+        long size = sizeOf(image);
+        if (size > maxBytes) {
+            return;
+        }
+        Entry old = entries.put(key, new Entry(image, size, clock.incrementAndGet()));
+        long total = bytes.addAndGet(old == null ? size : size - old.bytes);
+        if (total > maxBytes) {
+            evict();
+        }
+    }
+
+    public void clear() {
+        for (Key key : entries.keySet()) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                bytes.addAndGet(-removed.bytes);
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), bytes.get(), maxBytes, entries.size());
+    }
+
+    private synchronized void evict() {
+        if (bytes.get() <= maxBytes) {
+            return;
+        }
+        List<Map.Entry<Key, Entry>> byAge = new ArrayList<>(entries.entrySet());
+        byAge.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+        for (Map.Entry<Key, Entry> e : byAge) {
+            if (bytes.get() <= maxBytes) {
+                break;
+            }
+            if (entries.remove(e.getKey(), e.getValue())) {
+                bytes.addAndGet(-e.getValue().bytes);
+                evictions.increment();
+            }
+        }
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * 64-bit hash over 8-byte words with a murmur-style finalizer.
+     */
+    static long hash(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer data = buffer.order() == ByteOrder.LITTLE_ENDIAN
+                ? buffer : buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        long h = length * K1;
+        int end = offset + length;
+        int p = offset;
+        for (; p + 8 <= end; p += 8) {
+            long v = data.getLong(p);
+            h = Long.rotateLeft(h ^ (v * K2), 31) * K1;
+        }
+        for (; p < end; p++) {
+            h = Long.rotateLeft(h ^ ((data.get(p) & 0xFFL) * K2), 11) * K1;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -2,28 +2,62 @@ package org.foxesworld.cge.core.file.cgtex;
 
 import org.foxesworld.cge.core.file.AbstractFile;
 import org.foxesworld.cge.core.file.cgtex.reader.CGTEXFileReader;
+import org.foxesworld.cge.core.file.cgtex.reader.CGTEXMappedFileReader;
+import org.foxesworld.cge.core.file.cgtex.reader.ReadMode;
 import org.foxesworld.cge.core.file.cgtex.writer.CGTEXFileWriter;
+import org.foxesworld.cge.core.file.cgtex.writer.CGTEXStreamWriter;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
 public class CGTEXFile extends AbstractFile {
+    /** Исходный формат: записи текстур идут подряд, оглавления нет. */
+    public static final int VERSION_SEQUENTIAL = 1;
+    /** Формат с оглавлением (TOC) в конце файла. */
+    public static final int VERSION_INDEXED = 2;
+    /** Формат с кодеком и исходной длиной данных у каждой записи. */
+    public static final int VERSION_COMPRESSED = 3;
+    /** Формат с mip-цепочками: смещение и длины каждого уровня, кодек применяется к уровням по отдельности. */
+    public static final int VERSION_MIPMAPPED = 4;
 
     public CGTEXFile(File file, String mode) {
         super(file, mode);
         this.setMAGIC("CGTX");
-        this.setVERSION(1);
+        this.setVERSION(VERSION_MIPMAPPED);
     }
     @Override
     public CGTEXFileReader readFile() {
+        return readFile(ReadMode.FULL);
+    }
+
+    public CGTEXFileReader readFile(ReadMode mode) {
+        try {
+            return new CGTEXFileReader(this, mode);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Opens the file through a memory mapping; texture payloads are not copied to the heap.
+     */
+    public CGTEXMappedFileReader mapFile() {
         try {
-            return new CGTEXFileReader(this);
+            return new CGTEXMappedFileReader(this);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Starts a streaming write: textures are appended one by one and the header
+     * is patched when the returned writer is finished or closed.
+     */
+    public CGTEXStreamWriter openStreamWriter() throws IOException {
+        return new CGTEXStreamWriter(this);
+    }
+
     public void writeFile(List<TextureEntry> textureEntryList){
         CGTEXFileWriter writer = new CGTEXFileWriter(this);
         for (TextureEntry entry: textureEntryList) {
@@ -0,0 +1,148 @@
+package org.foxesworld.cge.core.file.cgtex;
+
+import org.foxesworld.cge.core.file.cgtex.codec.NoneCodec;
+
+/**
+ * Запись оглавления (TOC) CGTEX файла.
+ * Описывает одну текстуру без её данных: имя, размеры, формат,
+ * абсолютное смещение и длину полезной нагрузки в файле,
+ * а также кодек, которым закодированы данные, и их исходную длину.
+ * <p>
+ * Начиная с версии 4 текстура может хранить mip-цепочку: у каждого уровня своё
+ * смещение, длина в файле и исходная длина, а кодек применяется к каждому
+ * уровню отдельно, поэтому один уровень читается и декодируется независимо.
+ * Уровни лежат в файле подряд, так что {@link #getOffset()} / {@link #getLength()}
+ * описывают всю цепочку целиком.
+ */
+public class CGTEXIndexEntry {
+    private final String name;
+    private final int width;
+    private final int height;
+    private final byte format;
+    private final long offset;        // абсолютное смещение данных текстуры
+    private final int length;         // длина данных текстуры в файле в байтах
+    private final byte codec;         // id кодека данных
+    private final int rawLength;      // длина данных после декодирования
+    private final long[] levelOffsets;
+    private final int[] levelLengths;
+    private final int[] levelRawLengths;
+
+    public CGTEXIndexEntry(String name, int width, int height, byte format, long offset, int length) {
+        this(name, width, height, format, offset, length, NoneCodec.ID, length);
+    }
+
+    public CGTEXIndexEntry(String name, int width, int height, byte format, long offset, int length,
+                           byte codec, int rawLength) {
+        this(name, width, height, format, codec, new long[]{offset}, new int[]{length}, new int[]{rawLength});
+    }
+
+    /**
+     * @param levelOffsets    абсолютные смещения уровней mip-цепочки (уровни идут подряд)
+     * @param levelLengths    длины уровней в файле
+     * @param levelRawLengths длины уровней после декодирования
+     */
+    public CGTEXIndexEntry(String name, int width, int height, byte format, byte codec,
+                           long[] levelOffsets, int[] levelLengths, int[] levelRawLengths) {
+        if (levelOffsets.length == 0 || levelOffsets.length != levelLengths.length
+                || levelOffsets.length != levelRawLengths.length) {
+            throw new IllegalArgumentException("Inconsistent mip level tables for " + name);
+        }
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.codec = codec;
+        this.levelOffsets = levelOffsets.clone();
+        this.levelLengths = levelLengths.clone();
+        this.levelRawLengths = levelRawLengths.clone();
+        this.offset = levelOffsets[0];
+        long total = 0, rawTotal = 0;
+        for (int i = 0; i < levelLengths.length; i++) {
+            total += levelLengths[i];
+            rawTotal += levelRawLengths[i];
+        }
+        if (total > Integer.MAX_VALUE || rawTotal > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Texture data too large: " + name);
+        }
+        this.length = (int) total;
+        this.rawLength = (int) rawTotal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte getFormat() {
+        return format;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return длина данных в файле (после кодека)
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public byte getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return длина данных текстуры после декодирования
+     */
+    public int getRawLength() {
+        return rawLength;
+    }
+
+    /**
+     * @return число уровней mip-цепочки (1, если мипов нет)
+     */
+    public int getMipCount() {
+        return levelOffsets.length;
+    }
+
+    public long getLevelOffset(int level) {
+        return levelOffsets[level];
+    }
+
+    /**
+     * @return длина уровня в файле (после кодека)
+     */
+    public int getLevelLength(int level) {
+        return levelLengths[level];
+    }
+
+    /**
+     * @return длина уровня после декодирования
+     */
+    public int getLevelRawLength(int level) {
+        return levelRawLengths[level];
+    }
+
+    @Override
+    public String toString() {
+        return "CGTEXIndexEntry{" +
+                "name='" + name + '\'' +
+                ", width=" + width +
+                ", height=" + height +
+                ", format=" + format +
+                ", offset=" + offset +
+                ", length=" + length +
+                ", codec=" + codec +
+                ", rawLength=" + rawLength +
+                (getMipCount() > 1 ? ", mipCount=" + getMipCount() : "") +
+                '}';
+    }
+}
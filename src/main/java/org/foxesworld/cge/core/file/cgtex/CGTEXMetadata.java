@@ -8,13 +8,21 @@ public class CGTEXMetadata {
     private final int version;
     private int textureCount;
     private long dataOffset;          // смещение начала блока с текстурами
+    private long tocOffset;           // смещение оглавления (0, если оглавления нет)
     private long fileSize;            // общий размер файла
+    private long rawPayloadSize;      // суммарный размер данных текстур после декодирования
+    private long storedPayloadSize;   // суммарный размер данных текстур в файле
 
     public CGTEXMetadata(String magic, int version, int textureCount, long dataOffset, long fileSize) {
+        this(magic, version, textureCount, dataOffset, 0L, fileSize);
+    }
+
+    public CGTEXMetadata(String magic, int version, int textureCount, long dataOffset, long tocOffset, long fileSize) {
         this.magic = magic;
         this.version = version;
         this.textureCount = textureCount;
         this.dataOffset = dataOffset;
+        this.tocOffset = tocOffset;
         this.fileSize = fileSize;
     }
 
@@ -31,9 +39,33 @@ public class CGTEXMetadata {
     public long getDataOffset() {
         return dataOffset;
     }
+    public long getTocOffset() {
+        return tocOffset;
+    }
+    public boolean hasIndex() {
+        return tocOffset > 0;
+    }
     public long getFileSize() {
         return fileSize;
     }
+    public long getRawPayloadSize() {
+        return rawPayloadSize;
+    }
+    public long getStoredPayloadSize() {
+        return storedPayloadSize;
+    }
+
+    /**
+     * @return отношение размера данных в файле к исходному (1.0 - без сжатия)
+     */
+    public double getCompressionRatio() {
+        return rawPayloadSize > 0 ? (double) storedPayloadSize / rawPayloadSize : 1.0;
+    }
+
+    public void setPayloadSizes(long rawPayloadSize, long storedPayloadSize) {
+        this.rawPayloadSize = rawPayloadSize;
+        this.storedPayloadSize = storedPayloadSize;
+    }
 
     @Override
     public String toString() {
@@ -42,7 +74,9 @@ public class CGTEXMetadata {
                 ", version=" + version +
                 ", textureCount=" + textureCount +
                 ", dataOffset=" + dataOffset +
+                ", tocOffset=" + tocOffset +
                 ", fileSize=" + fileSize +
+                ", compressionRatio=" + String.format("%.3f", getCompressionRatio()) +
                 '}';
     }
 }
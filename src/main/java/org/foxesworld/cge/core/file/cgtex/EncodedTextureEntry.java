@@ -0,0 +1,79 @@
+package org.foxesworld.cge.core.file.cgtex;
+
+import org.foxesworld.cge.core.file.cgtex.codec.Codec;
+import org.foxesworld.cge.core.file.cgtex.codec.Codecs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * TextureEntry, данные которой уже закодированы кодеком и готовы к записи в файл как есть.
+ * {@link #getCompressedData()} прозрачно декодирует данные при каждом вызове.
+ * Уровни mip-цепочки кодируются по отдельности и хранятся подряд.
+ */
+public class EncodedTextureEntry extends TextureEntry {
+    private final Codec codec;
+    private final byte[] storedData;
+    private final int rawLength;
+    private final int[] storedLevelLengths;
+
+    public EncodedTextureEntry(TextureEntry source, Codec codec, byte[] storedData, int rawLength) {
+        this(source, codec, storedData, rawLength, new int[]{storedData.length});
+    }
+
+    /**
+     * @param storedLevelLengths закодированная длина каждого уровня mip-цепочки
+     */
+    public EncodedTextureEntry(TextureEntry source, Codec codec, byte[] storedData, int rawLength,
+                               int[] storedLevelLengths) {
+        super(source.getWidth(), source.getHeight(), source.getName(), source.getFormat(), null, source.getMipCount());
+        if (storedLevelLengths.length != source.getMipCount()) {
+            throw new IllegalArgumentException("Expected " + source.getMipCount() + " stored levels for " + getName());
+        }
+        this.codec = codec;
+        this.storedData = storedData;
+        this.rawLength = rawLength;
+        this.storedLevelLengths = storedLevelLengths.clone();
+    }
+
+    /**
+     * Декодирует данные текстуры.
+     * @throws UncheckedIOException если данные повреждены
+     */
+    @Override
+    public byte[] getCompressedData() {
+        try {
+            int[] rawLevelLengths = new int[getMipCount()];
+            for (int i = 0; i < rawLevelLengths.length; i++) {
+                rawLevelLengths[i] = getMipLevelLength(i);
+            }
+            return Codecs.decompressLevels(codec, storedData, storedLevelLengths, rawLevelLengths);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode texture " + getName(), e);
+        }
+    }
+
+    @Override
+    public int getDataLength() {
+        return rawLength;
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return данные в том виде, в котором они хранятся в файле
+     */
+    public byte[] getStoredData() {
+        return storedData;
+    }
+
+    /**
+     * @return закодированная длина уровня mip-цепочки
+     */
+    public int getStoredLevelLength(int level) {
+        checkLevel(level);
+        return storedLevelLengths[level];
+    }
+}
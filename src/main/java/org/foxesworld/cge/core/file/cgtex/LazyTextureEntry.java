@@ -0,0 +1,94 @@
+package org.foxesworld.cge.core.file.cgtex;
+
+import org.foxesworld.cge.core.file.cgtex.reader.CGTEXFileReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * TextureEntry, хранящая только смещение и длину данных.
+ * Данные читаются из файла при первом вызове {@link #getCompressedData()}
+ * и могут быть освобождены через {@link #unload()}.
+ * Файл должен оставаться открытым, пока используются такие записи.
+ * Отдельный уровень mip-цепочки ({@link #getMipLevel(int)}) читается из файла
+ * без загрузки всей цепочки.
+ */
+public class LazyTextureEntry extends TextureEntry {
+    private final CGTEXFileReader reader;
+    private final CGTEXIndexEntry indexEntry;
+    private volatile byte[] data;
+
+    public LazyTextureEntry(CGTEXFileReader reader, CGTEXIndexEntry indexEntry) {
+        super(indexEntry.getWidth(), indexEntry.getHeight(), indexEntry.getName(), indexEntry.getFormat(), null,
+                indexEntry.getMipCount());
+        this.reader = reader;
+        this.indexEntry = indexEntry;
+    }
+
+    /**
+     * Возвращает данные текстуры, читая их из файла при первом обращении.
+     * @throws UncheckedIOException при ошибке чтения
+     */
+    @Override
+    public byte[] getCompressedData() {
+        byte[] loaded = data;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = data;
+                if (loaded == null) {
+                    try {
+                        loaded = reader.readPayload(indexEntry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Cannot load texture " + getName(), e);
+                    }
+                    data = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public int getDataLength() {
+        return indexEntry.getRawLength();
+    }
+
+    @Override
+    public int getMipLevelLength(int level) {
+        checkLevel(level);
+        return indexEntry.getLevelRawLength(level);
+    }
+
+    /**
+     * Возвращает один уровень mip-цепочки: из загруженных данных, если они есть,
+     * иначе читает из файла только этот уровень.
+     * @throws UncheckedIOException при ошибке чтения
+     */
+    @Override
+    public byte[] getMipLevel(int level) {
+        checkLevel(level);
+        if (getMipCount() == 1 || data != null) {
+            return super.getMipLevel(level);
+        }
+        try {
+            return reader.readMipLevel(indexEntry, level);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load mip level " + level + " of " + getName(), e);
+        }
+    }
+
+    /**
+     * Освобождает загруженные данные; следующий вызов {@link #getCompressedData()} прочитает их снова.
+     */
+    public void unload() {
+        data = null;
+    }
+
+    public boolean isLoaded() {
+        return data != null;
+    }
+
+    public CGTEXIndexEntry getIndexEntry() {
+        return indexEntry;
+    }
+}
@@ -0,0 +1,147 @@
+package org.foxesworld.cge.core.file.cgtex;
+
+import org.foxesworld.cge.core.file.cgtex.codec.Codec;
+import org.foxesworld.cge.core.file.cgtex.codec.Codecs;
+import org.foxesworld.cge.core.file.cgtex.codec.NoneCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * TextureEntry, данные которой - read-only срез отображённого в память файла.
+ * Данные не копируются в heap; {@link #getCompressedData()} создаёт копию
+ * только для совместимости с кодом, работающим с byte[].
+ * Данные, закодированные кодеком, декодируются в heap при каждом обращении.
+ * Уровни mip-цепочки доступны срезами через {@link #getMipLevelBuffer(int)}.
+ */
+public class MappedTextureEntry extends TextureEntry {
+    private final ByteBuffer data;
+    private final Codec codec;
+    private final int rawLength;
+    private final int[] storedLevelLengths;
+    private final int[] rawLevelLengths;
+
+    public MappedTextureEntry(int width, int height, String name, byte format, ByteBuffer data) {
+        this(width, height, name, format, data, Codecs.NONE, data.remaining());
+    }
+
+    /**
+     * @param data      данные в том виде, в котором они хранятся в файле
+     * @param codec     кодек данных
+     * @param rawLength длина данных после декодирования
+     */
+    public MappedTextureEntry(int width, int height, String name, byte format, ByteBuffer data,
+                              Codec codec, int rawLength) {
+        this(width, height, name, format, data, codec, new int[]{data.remaining()}, new int[]{rawLength});
+    }
+
+    /**
+     * @param entry запись оглавления, описывающая данные
+     * @param data  данные всех уровней в том виде, в котором они хранятся в файле
+     * @param codec кодек данных
+     */
+    public MappedTextureEntry(CGTEXIndexEntry entry, ByteBuffer data, Codec codec) {
+        this(entry.getWidth(), entry.getHeight(), entry.getName(), entry.getFormat(), data, codec,
+                levelLengths(entry, false), levelLengths(entry, true));
+    }
+
+    private MappedTextureEntry(int width, int height, String name, byte format, ByteBuffer data,
+                               Codec codec, int[] storedLevelLengths, int[] rawLevelLengths) {
+        super(width, height, name, format, null, storedLevelLengths.length);
+        this.data = data.asReadOnlyBuffer().order(data.order());
+        this.codec = codec;
+        this.storedLevelLengths = storedLevelLengths;
+        this.rawLevelLengths = rawLevelLengths;
+        int total = 0;
+        for (int length : rawLevelLengths) {
+            total += length;
+        }
+        this.rawLength = total;
+    }
+
+    private static int[] levelLengths(CGTEXIndexEntry entry, boolean raw) {
+        int[] lengths = new int[entry.getMipCount()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = raw ? entry.getLevelRawLength(i) : entry.getLevelLength(i);
+        }
+        return lengths;
+    }
+
+    /**
+     * Копирует (и при необходимости декодирует) данные текстуры в новый массив.
+     */
+    @Override
+    public byte[] getCompressedData() {
+        byte[] stored = new byte[data.remaining()];
+        data.duplicate().get(stored);
+        if (isEncoded()) {
+            try {
+                return Codecs.decompressLevels(codec, stored, storedLevelLengths, rawLevelLengths);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot decode texture " + getName(), e);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * @return срез отображённого файла; для закодированных данных - новый heap-буфер с декодированными данными
+     */
+    @Override
+    public ByteBuffer getDataBuffer() {
+        if (isEncoded()) {
+            return ByteBuffer.wrap(getCompressedData()).asReadOnlyBuffer().order(data.order());
+        }
+        return data.duplicate().order(data.order());
+    }
+
+    @Override
+    public int getDataLength() {
+        return rawLength;
+    }
+
+    @Override
+    public int getMipLevelLength(int level) {
+        checkLevel(level);
+        return rawLevelLengths[level];
+    }
+
+    @Override
+    public byte[] getMipLevel(int level) {
+        ByteBuffer buffer = getMipLevelBuffer(level);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return срез одного уровня mip-цепочки; для закодированных данных - heap-буфер с декодированным уровнем
+     */
+    public ByteBuffer getMipLevelBuffer(int level) {
+        checkLevel(level);
+        int position = 0;
+        for (int i = 0; i < level; i++) {
+            position += storedLevelLengths[i];
+        }
+        ByteBuffer stored = data.slice(position, storedLevelLengths[level]).order(data.order());
+        if (!isEncoded()) {
+            return stored;
+        }
+        byte[] bytes = new byte[stored.remaining()];
+        stored.get(bytes);
+        try {
+            return ByteBuffer.wrap(codec.decompress(bytes, rawLevelLengths[level])).asReadOnlyBuffer()
+                    .order(data.order());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode mip level " + level + " of " + getName(), e);
+        }
+    }
+
+    /**
+     * @return true, если данные в файле закодированы кодеком и не могут быть отданы без копирования
+     */
+    public boolean isEncoded() {
+        return codec.id() != NoneCodec.ID;
+    }
+}
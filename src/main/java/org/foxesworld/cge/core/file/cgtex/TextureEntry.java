@@ -1,18 +1,54 @@
 package org.foxesworld.cge.core.file.cgtex;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Текстура в памяти. Если текстура содержит mip-цепочку ({@link #getMipCount()} &gt; 1),
+ * данные - это уровни подряд, от полного размера к меньшим, как в DDS:
+ * размер уровня {@code i} равен {@link #expectedDataLength} для
+ * {@code max(1, width >> i) x max(1, height >> i)}.
+ */
 public class TextureEntry {
+    public static final byte FORMAT_DXT1 = 1;
+    public static final byte FORMAT_DXT3 = 3;
+    public static final byte FORMAT_DXT5 = 5;
+    /** BCn без аналога DXTn: код 0x10 + номер BC, чтобы не пересекаться с DXT1..DXT5. */
+    public static final byte FORMAT_BC4 = 0x14;
+    public static final byte FORMAT_BC5 = 0x15;
+    public static final byte FORMAT_BC7 = 0x17;
+
     private final int width;
     private final int height;
     private final String name;
     private final byte format;
     private final byte[] compressedData;
+    private final int mipCount;
 
     public TextureEntry(int width, int height, String name, byte format, byte[] compressedData) {
+        this(width, height, name, format, compressedData, 1);
+    }
+
+    /**
+     * @param compressedData все уровни mip-цепочки подряд
+     * @param mipCount       число уровней, 1..{@link #maxMipCount(int, int)}
+     * @throws IllegalArgumentException если длина данных не совпадает с размером цепочки
+     */
+    public TextureEntry(int width, int height, String name, byte format, byte[] compressedData, int mipCount) {
+        if (mipCount < 1 || mipCount > maxMipCount(width, height)) {
+            throw new IllegalArgumentException("Invalid mip count " + mipCount + " for " + width + "x" + height);
+        }
+        if (mipCount > 1 && compressedData != null
+                && compressedData.length != mipChainLength(width, height, format, mipCount)) {
+            throw new IllegalArgumentException(String.format("Mip chain of %s: %d bytes, expected %d",
+                    name, compressedData.length, mipChainLength(width, height, format, mipCount)));
+        }
         this.width = width;
         this.height = height;
         this.name = name;
         this.format = format;
         this.compressedData = compressedData;
+        this.mipCount = mipCount;
     }
 
     @Override
@@ -21,7 +57,8 @@ public class TextureEntry {
                 "width=" + width +
                 ", height=" + height +
                 ", format=" + format +
-                ", compressedDataSize=" + (compressedData != null ? compressedData.length : 0) +
+                ", compressedDataSize=" + getDataLength() +
+                (mipCount > 1 ? ", mipCount=" + mipCount : "") +
                 '}';
     }
 
@@ -41,7 +78,133 @@ public class TextureEntry {
         return compressedData;
     }
 
+    /**
+     * @return данные текстуры в виде read-only буфера (без копирования)
+     */
+    public ByteBuffer getDataBuffer() {
+        return ByteBuffer.wrap(getCompressedData()).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return длина данных текстуры в байтах
+     */
+    public int getDataLength() {
+        return compressedData != null ? compressedData.length : 0;
+    }
+
     public String getName() {
         return name;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return число уровней mip-цепочки (1, если мипов нет)
+     */
+    public int getMipCount() {
+        return mipCount;
+    }
+
+    /**
+     * @return длина данных уровня {@code level} в байтах
+     */
+    public int getMipLevelLength(int level) {
+        checkLevel(level);
+        if (mipCount == 1) {
+            return getDataLength();
+        }
+        return (int) expectedDataLength(mipDimension(width, level), mipDimension(height, level), format);
+    }
+
+    /**
+     * Возвращает данные одного уровня mip-цепочки. Для цепочки из нескольких уровней это копия,
+     * для единственного уровня - сам массив {@link #getCompressedData()} без копирования;
+     * изменять его нельзя.
+     */
+    public byte[] getMipLevel(int level) {
+        checkLevel(level);
+        byte[] data = getCompressedData();
+        if (mipCount == 1) {
+            return data;
+        }
+        int offset = (int) mipChainLength(width, height, format, level);
+        return Arrays.copyOfRange(data, offset, offset + getMipLevelLength(level));
+    }
+
+    protected void checkLevel(int level) {
+        if (level < 0 || level >= mipCount) {
+            throw new IndexOutOfBoundsException("Mip level " + level + " of " + mipCount + " in " + name);
+        }
+    }
+
+    /**
+     * @param format код формата
+     * @return имя формата, например "DXT5"
+     */
+    public static String formatName(byte format) {
+        return switch (format) {
+            case FORMAT_DXT1 -> "DXT1";
+            case FORMAT_DXT3 -> "DXT3";
+            case FORMAT_DXT5 -> "DXT5";
+            case FORMAT_BC4 -> "BC4";
+            case FORMAT_BC5 -> "BC5";
+            case FORMAT_BC7 -> "BC7";
+            default -> "UNKNOWN(" + format + ")";
+        };
+    }
+
+    /**
+     * @param format код формата
+     * @return размер блока 4x4 в байтах или 0 для неизвестного формата
+     */
+    public static int blockSize(byte format) {
+        return switch (format) {
+            case FORMAT_DXT1, FORMAT_BC4 -> 8;
+            case FORMAT_DXT3, FORMAT_DXT5, FORMAT_BC5, FORMAT_BC7 -> 16;
+            default -> 0;
+        };
+    }
+
+    /**
+     * @return минимальный размер данных для текстуры заданных размеров и формата (0 для неизвестного формата)
+     */
+    public static long expectedDataLength(int width, int height, byte format) {
+        return (long) Math.max(1, (width + 3) / 4) * Math.max(1, (height + 3) / 4) * blockSize(format);
+    }
+
+    /**
+     * @return размер стороны на уровне {@code level}: {@code max(1, size >> level)}
+     */
+    public static int mipDimension(int size, int level) {
+        return Math.max(1, size >> level);
+    }
+
+    /**
+     * @return наибольшее число уровней для текстуры (до 1x1)
+     */
+    public static int maxMipCount(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(1, Math.max(width, height)));
+    }
+
+    /**
+     * @return суммарный размер первых {@code levels} уровней mip-цепочки
+     */
+    public static long mipChainLength(int width, int height, byte format, int levels) {
+        long total = 0;
+        for (int i = 0; i < levels; i++) {
+            total += expectedDataLength(mipDimension(width, i), mipDimension(height, i), format);
+        }
+        return total;
+    }
+
+    /**
+     * Выбирает самый маленький уровень, бóльшая сторона которого не меньше {@code minSize}
+     * (или уровень 0, если текстура сама меньше), - его достаточно для превью такого размера.
+     */
+    public static int mipLevelFor(int width, int height, int mipCount, int minSize) {
+        int level = 0;
+        while (level + 1 < mipCount
+                && Math.max(mipDimension(width, level + 1), mipDimension(height, level + 1)) >= minSize) {
+            level++;
+        }
+        return level;
+    }
+}
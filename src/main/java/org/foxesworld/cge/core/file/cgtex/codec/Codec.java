@@ -0,0 +1,42 @@
+package org.foxesworld.cge.core.file.cgtex.codec;
+
+import java.io.IOException;
+
+/**
+ * General-purpose codec applied to texture payloads inside a CGTEX file.
+ * <p>
+ * The codec id is stored per entry, so implementations must be registered in
+ * {@link Codecs} under the same id on the writing and the reading side.
+ * Implementations must be thread-safe.
+ */
+public interface Codec {
+
+    /**
+     * @return id stored in the file; 0 and 1 are reserved for {@link NoneCodec} and {@link DeflateCodec}
+     */
+    byte id();
+
+    /**
+     * @return human-readable codec name
+     */
+    String name();
+
+    /**
+     * Compresses a payload.
+     *
+     * @param data raw payload
+     * @return encoded payload
+     * @throws IOException if encoding fails
+     */
+    byte[] compress(byte[] data) throws IOException;
+
+    /**
+     * Restores a payload encoded by {@link #compress(byte[])}.
+     *
+     * @param data      encoded payload
+     * @param rawLength length of the raw payload
+     * @return raw payload of exactly {@code rawLength} bytes
+     * @throws IOException if the data is corrupt
+     */
+    byte[] decompress(byte[] data, int rawLength) throws IOException;
+}
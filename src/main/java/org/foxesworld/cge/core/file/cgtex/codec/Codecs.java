@@ -0,0 +1,79 @@
+package org.foxesworld.cge.core.file.cgtex.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of payload codecs by their id.
+ * <p>
+ * {@link NoneCodec} and {@link DeflateCodec} are always available. Faster codecs
+ * (LZ4, Zstd, ...) can be plugged in with {@link #register(Codec)} before files
+ * using them are read or written.
+ */
+public final class Codecs {
+    public static final Codec NONE = new NoneCodec();
+    public static final Codec DEFLATE = new DeflateCodec();
+
+    private static final Map<Byte, Codec> codecs = new ConcurrentHashMap<>();
+
+    static {
+        register(NONE);
+        register(DEFLATE);
+    }
+
+    private Codecs() {
+    }
+
+    /**
+     * Registers a codec, replacing any codec with the same id.
+     */
+    public static void register(Codec codec) {
+        codecs.put(codec.id(), codec);
+    }
+
+    /**
+     * @param id codec id stored in a file
+     * @return the registered codec
+     * @throws IOException if no codec is registered for the id
+     */
+    public static Codec get(byte id) throws IOException {
+        Codec codec = codecs.get(id);
+        if (codec == null) {
+            throw new IOException("Unknown CGTEX codec id: " + id);
+        }
+        return codec;
+    }
+
+    /**
+     * Restores a mip chain whose levels were encoded separately and stored one after another.
+     *
+     * @param storedLengths encoded length of every level
+     * @param rawLengths    raw length of every level
+     * @return the raw levels, concatenated
+     * @throws IOException if the data is corrupt
+     */
+    public static byte[] decompressLevels(Codec codec, byte[] stored, int[] storedLengths, int[] rawLengths)
+            throws IOException {
+        if (codec.id() == NoneCodec.ID) {
+            return stored;
+        }
+        if (storedLengths.length == 1) {
+            return codec.decompress(stored, rawLengths[0]);
+        }
+        int rawTotal = 0;
+        for (int rawLength : rawLengths) {
+            rawTotal += rawLength;
+        }
+        byte[] raw = new byte[rawTotal];
+        int in = 0, out = 0;
+        for (int i = 0; i < storedLengths.length; i++) {
+            byte[] level = codec.decompress(Arrays.copyOfRange(stored, in, in + storedLengths[i]), rawLengths[i]);
+            System.arraycopy(level, 0, raw, out, rawLengths[i]);
+            in += storedLengths[i];
+            out += rawLengths[i];
+        }
+        return raw;
+    }
+}
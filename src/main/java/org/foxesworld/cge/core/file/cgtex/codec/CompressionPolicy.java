@@ -0,0 +1,114 @@
+package org.foxesworld.cge.core.file.cgtex.codec;
+
+import org.foxesworld.cge.core.file.cgtex.EncodedTextureEntry;
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decides how each texture payload is stored.
+ * <ul>
+ *     <li>{@link #none()} - payloads are stored as they are</li>
+ *     <li>{@link #always(Codec)} - every payload is encoded</li>
+ *     <li>{@link #auto(Codec, double)} - a payload is encoded only if that saves at least the given fraction</li>
+ * </ul>
+ * Policies are immutable and can be applied from several threads,
+ * e.g. as the processor of a {@link org.foxesworld.cge.core.file.cgtex.writer.CGTEXPackPipeline}.
+ */
+public final class CompressionPolicy {
+    private static final double DEFAULT_MIN_SAVINGS = 0.1;
+    private static final CompressionPolicy NONE = new CompressionPolicy(Codecs.NONE, false, 0.0);
+
+    private final Codec codec;
+    private final boolean adaptive;
+    private final double minSavings;
+
+    private CompressionPolicy(Codec codec, boolean adaptive, double minSavings) {
+        this.codec = codec;
+        this.adaptive = adaptive;
+        this.minSavings = minSavings;
+    }
+
+    public static CompressionPolicy none() {
+        return NONE;
+    }
+
+    public static CompressionPolicy always(Codec codec) {
+        return new CompressionPolicy(codec, false, 0.0);
+    }
+
+    /**
+     * @param codec      codec to try
+     * @param minSavings minimal fraction of the raw size that must be saved, 0..1
+     */
+    public static CompressionPolicy auto(Codec codec, double minSavings) {
+        if (minSavings < 0.0 || minSavings >= 1.0) {
+            throw new IllegalArgumentException("minSavings must be in [0, 1): " + minSavings);
+        }
+        return new CompressionPolicy(codec, true, minSavings);
+    }
+
+    public static CompressionPolicy auto(Codec codec) {
+        return auto(codec, DEFAULT_MIN_SAVINGS);
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    public boolean isEnabled() {
+        return codec.id() != NoneCodec.ID;
+    }
+
+    /**
+     * Encodes the entry's payload according to this policy.
+     * Entries that are already encoded are returned unchanged.
+     *
+     * @return an EncodedTextureEntry holding the stored bytes and the chosen codec
+     */
+    public EncodedTextureEntry encode(TextureEntry entry) throws IOException {
+        if (entry instanceof EncodedTextureEntry encoded) {
+            return encoded;
+        }
+        byte[] raw = entry.getCompressedData();
+        int levels = entry.getMipCount();
+        if (isEnabled()) {
+            int[] storedLengths = new int[levels];
+            byte[] stored = compressLevels(entry, raw, storedLengths);
+            if (!adaptive || stored.length <= raw.length * (1.0 - minSavings)) {
+                return new EncodedTextureEntry(entry, codec, stored, raw.length, storedLengths);
+            }
+        }
+        int[] rawLengths = {raw.length};
+        if (levels > 1) {
+            rawLengths = new int[levels];
+            for (int i = 0; i < levels; i++) {
+                rawLengths[i] = entry.getMipLevelLength(i);
+            }
+        }
+        return new EncodedTextureEntry(entry, Codecs.NONE, raw, raw.length, rawLengths);
+    }
+
+    /**
+     * Encodes every mip level separately, so that a single level can be decoded on its own.
+     */
+    private byte[] compressLevels(TextureEntry entry, byte[] raw, int[] storedLengths) throws IOException {
+        if (storedLengths.length == 1) {
+            byte[] stored = codec.compress(raw);
+            storedLengths[0] = stored.length;
+            return stored;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+        int offset = 0;
+        for (int i = 0; i < storedLengths.length; i++) {
+            int length = entry.getMipLevelLength(i);
+            byte[] level = codec.compress(Arrays.copyOfRange(raw, offset, offset + length));
+            storedLengths[i] = level.length;
+            out.write(level);
+            offset += length;
+        }
+        return out.toByteArray();
+    }
+}
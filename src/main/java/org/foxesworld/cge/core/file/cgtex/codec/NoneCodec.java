@@ -0,0 +1,28 @@
+package org.foxesworld.cge.core.file.cgtex.codec;
+
+/**
+ * Stores payloads as they are.
+ */
+public final class NoneCodec implements Codec {
+    public static final byte ID = 0;
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public String name() {
+        return "none";
+    }
+
+    @Override
+    public byte[] compress(byte[] data) {
+        return data;
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int rawLength) {
+        return data;
+    }
+}
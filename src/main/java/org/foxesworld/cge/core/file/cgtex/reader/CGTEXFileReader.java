@@ -4,24 +4,44 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.foxesworld.cge.core.file.FileReader;
 import org.foxesworld.cge.core.file.cgtex.CGTEXFile;
+import org.foxesworld.cge.core.file.cgtex.CGTEXIndexEntry;
 import org.foxesworld.cge.core.file.cgtex.CGTEXMetadata;
+import org.foxesworld.cge.core.file.cgtex.LazyTextureEntry;
 import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+import org.foxesworld.cge.core.file.cgtex.codec.Codecs;
+import org.foxesworld.cge.core.file.cgtex.codec.NoneCodec;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Читает CGTEX файл, содержащий DXT текстуры.
+ * <p>
+ * В режиме {@link ReadMode#FULL} все текстуры читаются при открытии.
+ * В режиме {@link ReadMode#INDEX} читается только оглавление, а данные
+ * конкретной текстуры загружаются одним seek по имени или индексу.
+ * В режиме {@link ReadMode#LAZY} текстуры представлены {@link LazyTextureEntry},
+ * поэтому время открытия и занимаемая память зависят от числа текстур,
+ * а не от общего объёма данных.
+ * Файлы версии 1 (без оглавления) в режиме INDEX индексируются
+ * проходом по заголовкам записей без чтения данных.
+ * <p>
+ * Для текстур с mip-цепочкой (версия 4) {@link #readMipLevel(CGTEXIndexEntry, int)}
+ * читает и декодирует только один уровень.
  */
 public class CGTEXFileReader extends FileReader {
     private static final Logger logger = LogManager.getLogger(CGTEXFileReader.class);
+    /** Предельная степень сжатия deflate (~1032:1) - больше из stored-байт не распаковать. */
+    private static final int MAX_INFLATE_RATIO = 1032;
     //private final CGTEXFile cgtexFile;
+    private final ReadMode mode;
     private final CGTEXMetadata metadata;
     private final List<TextureEntry> textures = new ArrayList<>();
+    private final List<CGTEXIndexEntry> index = new ArrayList<>();
+    private final Map<String, Integer> nameIndex = new HashMap<>();
 
     /**
      * Конструктор для чтения CGTEX файла.
@@ -29,51 +49,55 @@ public class CGTEXFileReader extends FileReader {
      * @throws IOException Если произошла ошибка при чтении.
      */
     public CGTEXFileReader(CGTEXFile cgtexFile) throws IOException {
+        this(cgtexFile, ReadMode.FULL);
+    }
+
+    /**
+     * Конструктор для чтения CGTEX файла в заданном режиме.
+     * @param cgtexFile CGTEXFile, с которым будет работать этот класс.
+     * @param mode режим чтения.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    public CGTEXFileReader(CGTEXFile cgtexFile, ReadMode mode) throws IOException {
+        this(cgtexFile, mode, null);
+    }
+
+    /**
+     * Конструктор для чтения CGTEX файла с диагностикой.
+     * @param cgtexFile CGTEXFile, с которым будет работать этот класс.
+     * @param mode режим чтения.
+     * @param inspector диагностика (ограниченный HEX-дамп и структура) или null, чтобы отключить.
+     * @throws IOException Если произошла ошибка при чтении.
+     */
+    public CGTEXFileReader(CGTEXFile cgtexFile, ReadMode mode, CGTEXInspector inspector) throws IOException {
         super(cgtexFile);
+        this.mode = mode;
         logger.debug("================ CGTEX FILE READ START ================");
-        logger.debug("Opening file: {}", cgtexFile.getFile().getAbsolutePath());
-
-        // DEBUG: Вывод полного дампа файла в HEX
-        try {
-            byte[] allBytes = Files.readAllBytes(cgtexFile.getFile().toPath());
-            logger.debug("Full file HEX dump ({} bytes)", allBytes.length);
-        } catch (IOException e) {
-            logger.warn("Failed to dump full file hex: {}", e.getMessage());
-        }
+        logger.debug("Opening file: {} (mode={})", cgtexFile.getFile().getAbsolutePath(), mode);
 
         // Чтение заголовка
         this.metadata = readHeader();
         logger.debug("Header Parsed: {}", metadata);
 
-        // Чтение текстур
-        raf.seek(metadata.getDataOffset());
-        for (int i = 0; i < metadata.getTextureCount(); i++) {
-            int width = raf.readUnsignedShort();
-            int height = raf.readUnsignedShort();
-
-            // Чтение длины имени текстуры (4 байта)
-            int nameLength = raf.readInt();
-            byte[] nameBytes = new byte[nameLength];
-
-            // Чтение имени текстуры
-            raf.readFully(nameBytes);
-            String name = new String(nameBytes, StandardCharsets.UTF_8);
+        if (mode != ReadMode.FULL && metadata.hasIndex()) {
+            readToc();
+        } else {
+            readRecords(mode == ReadMode.FULL);
+        }
+        long rawSize = 0, storedSize = 0;
+        for (CGTEXIndexEntry entry : index) {
+            rawSize += entry.getRawLength();
+            storedSize += entry.getLength();
+        }
+        metadata.setPayloadSizes(rawSize, storedSize);
 
-            // Проверка на пустое имя
-            if (name.isEmpty()) {
-                logger.warn("Empty texture name found at index {}", i);
-                name = "UnnamedTexture_" + i; // Назначаем имя по умолчанию
+        if (mode == ReadMode.LAZY) {
+            for (CGTEXIndexEntry entry : index) {
+                textures.add(new LazyTextureEntry(this, entry));
             }
-
-            byte format = raf.readByte();
-            int dataLength = raf.readInt();
-            byte[] data = new byte[dataLength];
-
-            raf.readFully(data);
-
-            TextureEntry entry = new TextureEntry(width, height, name, format, data);
-            textures.add(entry);
-            //logger.debug("Texture[{}]: name={} size={}x{} format={}", i, entry.getName(), entry.getWidth()+'x'+entry.getHeight(), format);
+        }
+        if (inspector != null) {
+            inspector.inspect(raf, metadata, index);
         }
 
         logger.debug("================= CGTEX FILE READ END =================");
@@ -90,18 +114,312 @@ public class CGTEXFileReader extends FileReader {
         }
 
         int version = raf.readInt();
+        if (version < CGTEXFile.VERSION_SEQUENTIAL || version > CGTEXFile.VERSION_MIPMAPPED) {
+            throw new IOException("Unsupported CGTEX version: " + version);
+        }
         int textureCount = raf.readInt();
         long dataOffset = raf.readLong();
+        long tocOffset = version >= CGTEXFile.VERSION_INDEXED ? raf.readLong() : 0L;
         long fileSize = raf.length();
 
-        return new CGTEXMetadata(magic, version, textureCount, dataOffset, fileSize);
+        return new CGTEXMetadata(magic, version, textureCount, dataOffset, tocOffset, fileSize);
+    }
+
+    /**
+     * Последовательно проходит по записям текстур.
+     * @param loadData true - читать данные текстур, false - пропускать их (только индекс).
+     */
+    private void readRecords(boolean loadData) throws IOException {
+        boolean encoded = metadata.getVersion() >= CGTEXFile.VERSION_COMPRESSED;
+        boolean mipmapped = metadata.getVersion() >= CGTEXFile.VERSION_MIPMAPPED;
+        raf.seek(metadata.getDataOffset());
+        for (int i = 0; i < metadata.getTextureCount(); i++) {
+            int width = raf.readUnsignedShort();
+            int height = raf.readUnsignedShort();
+            String name = readName(i);
+            byte format = raf.readByte();
+            byte codec = encoded ? raf.readByte() : NoneCodec.ID;
+
+            CGTEXIndexEntry entry;
+            if (mipmapped) {
+                int levels = readMipCount(i);
+                long[] levelOffsets = new long[levels];
+                int[] levelLengths = new int[levels];
+                int[] levelRawLengths = new int[levels];
+                for (int level = 0; level < levels; level++) {
+                    levelRawLengths[level] = raf.readInt();
+                    levelLengths[level] = raf.readInt();
+                }
+                long position = raf.getFilePointer();
+                for (int level = 0; level < levels; level++) {
+                    checkPayload(i, position, levelLengths[level], levelRawLengths[level]);
+                    levelOffsets[level] = position;
+                    position += levelLengths[level];
+                }
+                entry = new CGTEXIndexEntry(name, width, height, format, codec,
+                        levelOffsets, levelLengths, levelRawLengths);
+            } else {
+                int rawLength = encoded ? raf.readInt() : -1;
+                int dataLength = raf.readInt();
+                checkPayload(i, raf.getFilePointer(), dataLength, encoded ? rawLength : dataLength);
+                entry = new CGTEXIndexEntry(name, width, height, format, raf.getFilePointer(), dataLength,
+                        codec, encoded ? rawLength : dataLength);
+            }
+            addIndexEntry(entry, i);
+            if (loadData) {
+                byte[] data = new byte[entry.getLength()];
+                raf.readFully(data);
+                textures.add(new TextureEntry(width, height, name, format, decode(entry, data), entry.getMipCount()));
+            } else {
+                raf.seek(entry.getOffset() + entry.getLength());
+            }
+            //logger.debug("Texture[{}]: name={} size={}x{} format={}", i, entry.getName(), entry.getWidth()+'x'+entry.getHeight(), format);
+        }
+    }
+
+    /**
+     * Читает оглавление, записанное в конце файла (версия 2+).
+     */
+    private void readToc() throws IOException {
+        boolean encoded = metadata.getVersion() >= CGTEXFile.VERSION_COMPRESSED;
+        boolean mipmapped = metadata.getVersion() >= CGTEXFile.VERSION_MIPMAPPED;
+        raf.seek(metadata.getTocOffset());
+        for (int i = 0; i < metadata.getTextureCount(); i++) {
+            int width = raf.readUnsignedShort();
+            int height = raf.readUnsignedShort();
+            String name = readName(i);
+            byte format = raf.readByte();
+            byte codec = encoded ? raf.readByte() : NoneCodec.ID;
+            int levels = mipmapped ? readMipCount(i) : 1;
+
+            long[] levelOffsets = new long[levels];
+            int[] levelLengths = new int[levels];
+            int[] levelRawLengths = new int[levels];
+            for (int level = 0; level < levels; level++) {
+                long dataOffset = raf.readLong();
+                int dataLength = raf.readInt();
+                int rawLength = encoded ? raf.readInt() : dataLength;
+
+                checkPayload(i, dataOffset, dataLength, rawLength);
+                // уровни читаются одним блоком, поэтому должны лежать подряд
+                if (level > 0 && dataOffset != levelOffsets[level - 1] + levelLengths[level - 1]) {
+                    throw new IOException(String.format("Entry %d: mip level %d at offset %d, expected %d",
+                            i, level, dataOffset, levelOffsets[level - 1] + levelLengths[level - 1]));
+                }
+                levelOffsets[level] = dataOffset;
+                levelLengths[level] = dataLength;
+                levelRawLengths[level] = rawLength;
+            }
+            addIndexEntry(new CGTEXIndexEntry(name, width, height, format, codec,
+                    levelOffsets, levelLengths, levelRawLengths), i);
+        }
+    }
+
+    /**
+     * Проверяет, что данные записи целиком лежат в файле, а длины не отрицательны.
+     */
+    private void checkPayload(int i, long dataOffset, int dataLength, int rawLength) throws IOException {
+        if (dataOffset < 0 || dataLength < 0 || rawLength < 0
+                || dataOffset + dataLength > metadata.getFileSize()) {
+            throw new IOException(String.format(
+                    "Invalid entry %d: offset=%d, length=%d, raw length=%d exceeds file size (%d)",
+                    i, dataOffset, dataLength, rawLength, metadata.getFileSize()));
+        }
+    }
+
+    /**
+     * Ограничивает распакованную длину записи с одним уровнем до выделения буфера под неё:
+     * для известного формата - от уровня 0 до полной mip-цепочки, для неизвестного - по
+     * предельной степени сжатия deflate.
+     */
+    private void checkRawLength(CGTEXIndexEntry entry, int i) throws IOException {
+        int rawLength = entry.getLevelRawLength(0);
+        long min;
+        long max;
+        if (TextureEntry.blockSize(entry.getFormat()) != 0) {
+            min = TextureEntry.expectedDataLength(entry.getWidth(), entry.getHeight(), entry.getFormat());
+            max = TextureEntry.mipChainLength(entry.getWidth(), entry.getHeight(), entry.getFormat(),
+                    TextureEntry.maxMipCount(entry.getWidth(), entry.getHeight()));
+        } else {
+            min = 0;
+            max = entry.getCodec() == NoneCodec.ID
+                    ? entry.getLength()
+                    : (long) entry.getLength() * MAX_INFLATE_RATIO + MAX_INFLATE_RATIO;
+        }
+        if (rawLength < min || rawLength > max) {
+            throw new IOException(String.format("Entry %d: raw length %d outside [%d, %d] for %dx%d %s",
+                    i, rawLength, min, max, entry.getWidth(), entry.getHeight(),
+                    TextureEntry.formatName(entry.getFormat())));
+        }
+    }
+
+    private int readMipCount(int i) throws IOException {
+        int levels = raf.readUnsignedByte();
+        if (levels < 1) {
+            throw new IOException("Invalid mip level count " + levels + " in entry " + i);
+        }
+        return levels;
+    }
+
+    private String readName(int i) throws IOException {
+        // Чтение длины имени текстуры (4 байта)
+        String name = getThisFile().readString(getThisFile().getMAX_NAME_LENGTH());
+
+        // Проверка на пустое имя
+        if (name.isEmpty()) {
+            logger.warn("Empty texture name found at index {}", i);
+            name = "UnnamedTexture_" + i; // Назначаем имя по умолчанию
+        }
+        return name;
+    }
+
+    private void addIndexEntry(CGTEXIndexEntry entry, int i) throws IOException {
+        int levels = entry.getMipCount();
+        if (levels > 1) {
+            if (levels > TextureEntry.maxMipCount(entry.getWidth(), entry.getHeight())) {
+                throw new IOException(String.format("Entry %d: %d mip levels for %dx%d",
+                        i, levels, entry.getWidth(), entry.getHeight()));
+            }
+            for (int level = 0; level < levels; level++) {
+                long expected = TextureEntry.expectedDataLength(TextureEntry.mipDimension(entry.getWidth(), level),
+                        TextureEntry.mipDimension(entry.getHeight(), level), entry.getFormat());
+                if (entry.getLevelRawLength(level) != expected) {
+                    throw new IOException(String.format("Entry %d: mip level %d has %d bytes, expected %d",
+                            i, level, entry.getLevelRawLength(level), expected));
+                }
+            }
+        } else {
+            checkRawLength(entry, i);
+        }
+        nameIndex.putIfAbsent(entry.getName(), index.size());
+        index.add(entry);
     }
 
     public CGTEXMetadata getMetadata() {
         return metadata;
     }
 
-    public List<TextureEntry> getTextures() {
-        return List.copyOf(textures);
+    public ReadMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return оглавление файла в порядке записей.
+     */
+    public List<CGTEXIndexEntry> getIndex() {
+        return List.copyOf(index);
+    }
+
+    /**
+     * @param name имя текстуры
+     * @return позиция текстуры в оглавлении или -1, если текстуры нет
+     */
+    public int indexOf(String name) {
+        Integer i = nameIndex.get(name);
+        return i != null ? i : -1;
+    }
+
+    /**
+     * Возвращает текстуру по индексу. В режиме INDEX данные читаются одним seek,
+     * в режиме LAZY возвращается LazyTextureEntry без чтения данных.
+     * @param i индекс текстуры
+     * @return TextureEntry
+     * @throws IOException при ошибке чтения
+     */
+    public TextureEntry getTexture(int i) throws IOException {
+        if (mode != ReadMode.INDEX) {
+            return textures.get(i);
+        }
+        CGTEXIndexEntry entry = index.get(i);
+        return new TextureEntry(entry.getWidth(), entry.getHeight(), entry.getName(),
+                entry.getFormat(), readPayload(entry), entry.getMipCount());
+    }
+
+    /**
+     * Возвращает текстуру по имени.
+     * @param name имя текстуры
+     * @return TextureEntry или null, если текстура не найдена
+     * @throws IOException при ошибке чтения
+     */
+    public TextureEntry getTexture(String name) throws IOException {
+        int i = indexOf(name);
+        return i >= 0 ? getTexture(i) : null;
+    }
+
+    /**
+     * Читает и декодирует данные текстуры, описанной записью оглавления.
+     */
+    public byte[] readPayload(CGTEXIndexEntry entry) throws IOException {
+        return decode(entry, readStoredPayload(entry));
+    }
+
+    /**
+     * Читает данные текстуры в том виде, в котором они хранятся в файле (без декодирования).
+     */
+    public synchronized byte[] readStoredPayload(CGTEXIndexEntry entry) throws IOException {
+        raf.seek(entry.getOffset());
+        byte[] data = new byte[entry.getLength()];
+        raf.readFully(data);
+        return data;
+    }
+
+    /**
+     * Читает и декодирует один уровень mip-цепочки; остальные уровни не читаются.
+     * @param level уровень, 0 - полный размер
+     */
+    public byte[] readMipLevel(CGTEXIndexEntry entry, int level) throws IOException {
+        if (level < 0 || level >= entry.getMipCount()) {
+            throw new IndexOutOfBoundsException("Mip level " + level + " of " + entry.getMipCount()
+                    + " in " + entry.getName());
+        }
+        byte[] stored;
+        synchronized (this) {
+            raf.seek(entry.getLevelOffset(level));
+            stored = new byte[entry.getLevelLength(level)];
+            raf.readFully(stored);
+        }
+        if (entry.getCodec() == NoneCodec.ID) {
+            return stored;
+        }
+        return Codecs.get(entry.getCodec()).decompress(stored, entry.getLevelRawLength(level));
+    }
+
+    /**
+     * Декодирует данные записи её кодеком (каждый уровень mip-цепочки отдельно).
+     */
+    public static byte[] decode(CGTEXIndexEntry entry, byte[] stored) throws IOException {
+        if (entry.getCodec() == NoneCodec.ID) {
+            return stored;
+        }
+        int levels = entry.getMipCount();
+        int[] storedLengths = new int[levels];
+        int[] rawLengths = new int[levels];
+        for (int level = 0; level < levels; level++) {
+            storedLengths[level] = entry.getLevelLength(level);
+            rawLengths[level] = entry.getLevelRawLength(level);
+        }
+        return Codecs.decompressLevels(Codecs.get(entry.getCodec()), stored, storedLengths, rawLengths);
+    }
+
+    /**
+     * Освобождает данные всех загруженных LazyTextureEntry (только режим LAZY).
+     */
+    public void unloadAll() {
+        for (TextureEntry entry : textures) {
+            if (entry instanceof LazyTextureEntry lazy) {
+                lazy.unload();
+            }
+        }
+    }
+
+    public List<TextureEntry> getTextures() throws IOException {
+        if (mode != ReadMode.INDEX) {
+            return List.copyOf(textures);
+        }
+        List<TextureEntry> loaded = new ArrayList<>(index.size());
+        for (int i = 0; i < index.size(); i++) {
+            loaded.add(getTexture(i));
+        }
+        return loaded;
     }
 }
@@ -0,0 +1,114 @@
+package org.foxesworld.cge.core.file.cgtex.reader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.foxesworld.cge.core.file.cgtex.CGTEXIndexEntry;
+import org.foxesworld.cge.core.file.cgtex.CGTEXMetadata;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Диагностический режим чтения CGTEX: ограниченный HEX-дамп и дамп структуры файла.
+ * <p>
+ * Включается для конкретного читателя передачей экземпляра в
+ * {@link CGTEXFileReader#CGTEXFileReader(org.foxesworld.cge.core.file.cgtex.CGTEXFile, ReadMode, CGTEXInspector)}.
+ * Дамп читается потоково небольшими блоками, объём ограничен {@code maxHexBytes},
+ * поэтому открытие файла любого размера не требует дополнительного полного прохода.
+ */
+public class CGTEXInspector {
+    private static final Logger logger = LogManager.getLogger(CGTEXInspector.class);
+    private static final int BYTES_PER_LINE = 16;
+    private static final int DEFAULT_MAX_HEX_BYTES = 256;
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private final int maxHexBytes;
+    private final int maxEntries;
+    private final Consumer<String> sink;
+
+    /**
+     * Инспектор с ограничениями по умолчанию, выводящий в лог.
+     */
+    public CGTEXInspector() {
+        this(DEFAULT_MAX_HEX_BYTES, DEFAULT_MAX_ENTRIES, logger::info);
+    }
+
+    /**
+     * @param maxHexBytes максимальное число байт в каждом HEX-дампе
+     * @param maxEntries  максимальное число записей оглавления в дампе структуры
+     * @param sink        приёмник строк дампа
+     */
+    public CGTEXInspector(int maxHexBytes, int maxEntries, Consumer<String> sink) {
+        if (maxHexBytes < 0 || maxEntries < 0) {
+            throw new IllegalArgumentException("Limits cannot be negative");
+        }
+        this.maxHexBytes = maxHexBytes;
+        this.maxEntries = maxEntries;
+        this.sink = sink;
+    }
+
+    /**
+     * Выводит заголовок, оглавление и HEX-дампы начала файла и оглавления.
+     * Позиция указателя файла сохраняется.
+     */
+    public void inspect(RandomAccessFile raf, CGTEXMetadata metadata, List<CGTEXIndexEntry> index) throws IOException {
+        sink.accept("Header: " + metadata);
+        dumpHex(raf, 0, metadata.getDataOffset());
+        if (metadata.hasIndex()) {
+            sink.accept("TOC at " + metadata.getTocOffset() + ":");
+            dumpHex(raf, metadata.getTocOffset(), metadata.getFileSize() - metadata.getTocOffset());
+        }
+
+        int shown = Math.min(index.size(), maxEntries);
+        for (int i = 0; i < shown; i++) {
+            sink.accept(String.format("  [%d] %s", i, index.get(i)));
+        }
+        if (shown < index.size()) {
+            sink.accept(String.format("  ... %d more entries", index.size() - shown));
+        }
+    }
+
+    /**
+     * Потоково выводит HEX-дамп области файла, не более {@code maxHexBytes} байт.
+     * Позиция указателя файла сохраняется.
+     */
+    public void dumpHex(RandomAccessFile raf, long offset, long length) throws IOException {
+        long limit = Math.min(length, maxHexBytes);
+        long saved = raf.getFilePointer();
+        try {
+            raf.seek(offset);
+            byte[] line = new byte[BYTES_PER_LINE];
+            long done = 0;
+            while (done < limit) {
+                int n = raf.read(line, 0, (int) Math.min(BYTES_PER_LINE, limit - done));
+                if (n < 0) {
+                    break;
+                }
+                sink.accept(formatLine(offset + done, line, n));
+                done += n;
+            }
+            if (limit < length) {
+                sink.accept(String.format("%08x: ... %d more bytes", offset + limit, length - limit));
+            }
+        } finally {
+            raf.seek(saved);
+        }
+    }
+
+    private static String formatLine(long address, byte[] line, int n) {
+        StringBuilder hex = new StringBuilder(BYTES_PER_LINE * 3);
+        StringBuilder ascii = new StringBuilder(BYTES_PER_LINE);
+        for (int i = 0; i < BYTES_PER_LINE; i++) {
+            if (i < n) {
+                int b = line[i] & 0xFF;
+                hex.append(String.format("%02x ", b));
+                ascii.append(b >= 0x20 && b < 0x7F ? (char) b : '.');
+            } else {
+                hex.append("   ");
+            }
+        }
+        return String.format("%08x: %s|%s|", address, hex, ascii);
+    }
+}
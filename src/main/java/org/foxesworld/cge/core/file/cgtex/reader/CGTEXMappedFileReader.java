@@ -0,0 +1,112 @@
+package org.foxesworld.cge.core.file.cgtex.reader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.foxesworld.cge.core.file.FileReader;
+import org.foxesworld.cge.core.file.cgtex.CGTEXFile;
+import org.foxesworld.cge.core.file.cgtex.CGTEXIndexEntry;
+import org.foxesworld.cge.core.file.cgtex.CGTEXMetadata;
+import org.foxesworld.cge.core.file.cgtex.MappedTextureEntry;
+import org.foxesworld.cge.core.file.cgtex.codec.Codecs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Читает CGTEX файл через отображение в память (FileChannel/MappedByteBuffer).
+ * <p>
+ * Оглавление читается через {@link CGTEXFileReader} в режиме {@link ReadMode#INDEX},
+ * после чего файл отображается один раз, а данные каждой текстуры отдаются
+ * как read-only срез без копирования в heap. Несколько читателей одного файла
+ * разделяют страничный кэш ОС.
+ * <p>
+ * Один MappedByteBuffer не может превышать 2 ГБ, поэтому большие файлы
+ * отображаются сегментами по {@value #SEGMENT_SIZE} байт; текстура,
+ * пересекающая границу сегмента, отображается отдельно.
+ * <p>
+ * Данные, закодированные кодеком (версия 3+), не могут быть отданы без копирования:
+ * такие записи декодируются в heap-буфер при обращении.
+ */
+public class CGTEXMappedFileReader extends FileReader {
+    private static final Logger logger = LogManager.getLogger(CGTEXMappedFileReader.class);
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final CGTEXFileReader indexReader;
+    private final MappedByteBuffer[] segments;
+    private final List<MappedTextureEntry> textures;
+
+    /**
+     * @param cgtexFile CGTEXFile, открытый на чтение
+     * @throws IOException при ошибке чтения оглавления или отображения
+     */
+    public CGTEXMappedFileReader(CGTEXFile cgtexFile) throws IOException {
+        super(cgtexFile);
+        this.indexReader = new CGTEXFileReader(cgtexFile, ReadMode.INDEX);
+
+        FileChannel channel = raf.getChannel();
+        long fileSize = channel.size();
+        int segmentCount = (int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long position = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(SEGMENT_SIZE, fileSize - position));
+        }
+        logger.debug("Mapped {} ({} bytes, {} segment(s))",
+                cgtexFile.getFile().getAbsolutePath(), fileSize, segmentCount);
+
+        List<CGTEXIndexEntry> index = indexReader.getIndex();
+        this.textures = new ArrayList<>(index.size());
+        for (CGTEXIndexEntry entry : index) {
+            textures.add(new MappedTextureEntry(entry, slice(channel, entry), Codecs.get(entry.getCodec())));
+        }
+    }
+
+    private ByteBuffer slice(FileChannel channel, CGTEXIndexEntry entry) throws IOException {
+        long offset = entry.getOffset();
+        int length = entry.getLength();
+        int segment = (int) (offset / SEGMENT_SIZE);
+        int position = (int) (offset % SEGMENT_SIZE);
+
+        ByteBuffer data;
+        if (length == 0 || position + (long) length <= segments[segment].capacity()) {
+            data = segments[segment].slice(position, length);
+        } else {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        return data.order(getThisFile().getBYTE_ORDER());
+    }
+
+    public CGTEXMetadata getMetadata() {
+        return indexReader.getMetadata();
+    }
+
+    public List<CGTEXIndexEntry> getIndex() {
+        return indexReader.getIndex();
+    }
+
+    public int indexOf(String name) {
+        return indexReader.indexOf(name);
+    }
+
+    public MappedTextureEntry getTexture(int i) {
+        return textures.get(i);
+    }
+
+    /**
+     * @param name имя текстуры
+     * @return MappedTextureEntry или null, если текстура не найдена
+     */
+    public MappedTextureEntry getTexture(String name) {
+        int i = indexOf(name);
+        return i >= 0 ? textures.get(i) : null;
+    }
+
+    public List<MappedTextureEntry> getTextures() {
+        return List.copyOf(textures);
+    }
+}
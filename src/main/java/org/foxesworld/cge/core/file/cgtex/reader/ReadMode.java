@@ -0,0 +1,17 @@
+package org.foxesworld.cge.core.file.cgtex.reader;
+
+/**
+ * Режим открытия CGTEX файла.
+ */
+public enum ReadMode {
+    /** Читает все записи и данные текстур при открытии. */
+    FULL,
+    /** Читает только оглавление; данные текстур загружаются по запросу. */
+    INDEX,
+    /**
+     * Читает только оглавление; {@link CGTEXFileReader#getTextures()} возвращает
+     * {@link org.foxesworld.cge.core.file.cgtex.LazyTextureEntry}, данные которых
+     * загружаются при первом обращении и могут быть освобождены.
+     */
+    LAZY
+}
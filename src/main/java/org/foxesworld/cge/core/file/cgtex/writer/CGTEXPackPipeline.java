@@ -0,0 +1,204 @@
+package org.foxesworld.cge.core.file.cgtex.writer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel packing pipeline for CGTEX files.
+ * <p>
+ * Inputs are read, validated and optionally processed (e.g. compressed) on a pool
+ * of worker threads, while the calling thread acts as the single writer and
+ * consumes the results strictly in input order. The number of results in flight
+ * is bounded, so memory stays proportional to the thread count, not the input size.
+ * <pre>
+ * try (CGTEXPackPipeline pipeline = new CGTEXPackPipeline();
+ *      CGTEXStreamWriter writer = cgtexFile.openStreamWriter()) {
+ *     pipeline.pack(ddsFiles, DDSParser::readEntry, writer);
+ *     writer.finish();
+ * }
+ * </pre>
+ */
+public class CGTEXPackPipeline implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(CGTEXPackPipeline.class);
+    private static final int MAX_DIMENSION = 0xFFFF;
+
+    /**
+     * A unit of work that may fail with an I/O error.
+     */
+    @FunctionalInterface
+    public interface Stage<S, R> {
+        R apply(S input) throws IOException;
+    }
+
+    /**
+     * Consumer of ordered results, always called on the calling thread.
+     */
+    @FunctionalInterface
+    public interface Sink<R> {
+        void accept(R result) throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private Stage<TextureEntry, TextureEntry> processor;
+
+    /**
+     * Creates a pipeline with one worker per available processor.
+     */
+    public CGTEXPackPipeline() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public CGTEXPackPipeline(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+        this.maxInFlight = threads * 2;
+    }
+
+    /**
+     * Sets an optional stage applied to every loaded texture on the worker threads
+     * (e.g. payload compression).
+     */
+    public void setProcessor(Stage<TextureEntry, TextureEntry> processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Loads all sources in parallel and appends them to the writer in input order.
+     *
+     * @param sources inputs, e.g. DDS file paths
+     * @param loader  turns one input into a TextureEntry; runs on worker threads
+     * @param writer  destination; only used from the calling thread
+     * @return number of textures written
+     * @throws IOException if any input fails to load or validate, or writing fails
+     */
+    public <S> int pack(List<? extends S> sources, Stage<? super S, TextureEntry> loader,
+                        CGTEXStreamWriter writer) throws IOException {
+        Stage<S, TextureEntry> task = source -> {
+            TextureEntry entry = loader.apply(source);
+            validate(entry, source);
+            return processor != null ? processor.apply(entry) : entry;
+        };
+        long start = System.nanoTime();
+        forEachOrdered(sources, task, writer::append);
+        logger.info("Packed {} textures in {} ms", sources.size(), (System.nanoTime() - start) / 1_000_000);
+        return sources.size();
+    }
+
+    /**
+     * Applies {@code stage} to all sources on the worker threads and passes the results
+     * to {@code sink} on the calling thread in input order. Stops at the first failure
+     * and cancels the remaining work.
+     */
+    public <S, R> void forEachOrdered(List<? extends S> sources, Stage<? super S, ? extends R> stage,
+                                      Sink<? super R> sink) throws IOException {
+        Deque<Future<? extends R>> inFlight = new ArrayDeque<>(maxInFlight);
+        Iterator<? extends S> it = sources.iterator();
+        try {
+            while (it.hasNext() || !inFlight.isEmpty()) {
+                while (it.hasNext() && inFlight.size() < maxInFlight) {
+                    S source = it.next();
+                    inFlight.add(executor.submit(() -> stage.apply(source)));
+                }
+                sink.accept(await(inFlight.poll()));
+            }
+        } finally {
+            for (Future<? extends R> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static <R> R await(Future<R> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Packing interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Checks a loaded texture before it is written: name, dimensions, a known block format
+     * and a payload long enough for its dimensions, format and mip count.
+     *
+     * @param source the input the texture was loaded from, for error messages
+     * @throws IOException if the texture cannot be written
+     */
+    public static void validate(TextureEntry entry, Object source) throws IOException {
+        if (entry == null) {
+            throw new IOException("No texture produced for " + source);
+        }
+        if (entry.getName() == null || entry.getName().isEmpty()) {
+            throw new IOException("Texture without a name: " + source);
+        }
+        if (entry.getWidth() <= 0 || entry.getHeight() <= 0
+                || entry.getWidth() > MAX_DIMENSION || entry.getHeight() > MAX_DIMENSION) {
+            throw new IOException(String.format("Invalid dimensions %dx%d: %s",
+                    entry.getWidth(), entry.getHeight(), source));
+        }
+        if (entry.getDataLength() == 0) {
+            throw new IOException("Texture without data: " + source);
+        }
+        if (TextureEntry.blockSize(entry.getFormat()) == 0) {
+            throw new IOException("Unknown texture format " + entry.getFormat() + ": " + source);
+        }
+        long expected = TextureEntry.mipChainLength(entry.getWidth(), entry.getHeight(), entry.getFormat(),
+                entry.getMipCount());
+        if (entry.getDataLength() < expected) {
+            throw new IOException(String.format("Truncated payload: %d bytes, expected at least %d for %dx%d %s: %s",
+                    entry.getDataLength(), expected, entry.getWidth(), entry.getHeight(),
+                    TextureEntry.formatName(entry.getFormat()), source));
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private static final AtomicInteger POOL = new AtomicInteger();
+        private final int pool = POOL.incrementAndGet();
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "cgtex-pack-" + pool + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package org.foxesworld.cge.core.file.cgtex.writer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.foxesworld.cge.core.file.FileWriter;
+import org.foxesworld.cge.core.file.cgtex.CGTEXFile;
+import org.foxesworld.cge.core.file.cgtex.CGTEXIndexEntry;
+import org.foxesworld.cge.core.file.cgtex.EncodedTextureEntry;
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+import org.foxesworld.cge.core.file.cgtex.codec.CompressionPolicy;
+import org.foxesworld.cge.core.file.cgtex.codec.NoneCodec;
+import org.foxesworld.cge.core.io.ChannelOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming writer for CGTEX files.
+ * <p>
+ * The header is written with placeholders when the writer is created, every
+ * {@code append(...)} call writes its record immediately, and {@link #finish()}
+ * appends the table of contents and patches the texture count and offsets.
+ * {@link #close()} without a successful {@code finish()} (e.g. when an append failed)
+ * truncates the file instead, so a failed write never leaves a valid-looking file with
+ * only part of the textures. Only the table of contents is kept in memory, so peak memory is bounded by
+ * a single texture (or by the copy buffer for stream and file sources).
+ * <p>
+ * From {@link CGTEXFile#VERSION_COMPRESSED} on, every record carries a codec id and the
+ * raw payload length. Payloads are encoded according to the {@link CompressionPolicy}
+ * set with {@link #setCompressionPolicy(CompressionPolicy)}; entries that arrive as
+ * {@link EncodedTextureEntry} (e.g. encoded on pipeline workers) are written as they are.
+ * <p>
+ * From {@link CGTEXFile#VERSION_MIPMAPPED} on, a record stores the mip level count and the
+ * raw and stored length of every level, and the table of contents stores every level's
+ * offset, so a single level can be read without touching the rest of the chain. Older
+ * versions store a mip chain as one opaque payload.
+ * <pre>
+ * try (CGTEXStreamWriter writer = cgtexFile.openStreamWriter()) {
+ *     writer.append(entry);
+ *     writer.append("stone", 256, 256, (byte) 5, ddsPayloadPath);
+ *     writer.finish();
+ * }
+ * </pre>
+ */
+public class CGTEXStreamWriter extends FileWriter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(CGTEXStreamWriter.class);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final CGTEXFile cgtexFile;
+    private final ChannelOutput out;
+    private final boolean indexed;
+    private final boolean encoded;
+    private final boolean mipmapped;
+    private final long countPos;
+    private final long dataOffsetPos;
+    private final long dataOffset;
+    private final List<CGTEXIndexEntry> toc = new ArrayList<>();
+    private CompressionPolicy compressionPolicy = CompressionPolicy.none();
+    private byte[] copyBuffer;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Truncates the file and writes the header with placeholder values.
+     *
+     * @param cgtexFile CGTEXFile opened in "rw" mode
+     * @throws IOException if writing fails
+     */
+    public CGTEXStreamWriter(CGTEXFile cgtexFile) throws IOException {
+        this.cgtexFile = cgtexFile;
+        RandomAccessFile raf = cgtexFile.getRaf();
+        raf.setLength(0);  // Очищаем файл перед записью
+        raf.seek(0);
+        logger.info("Writing CGTEX: {}", cgtexFile.getFile().getAbsolutePath());
+        this.out = new ChannelOutput(raf.getChannel());
+        this.indexed = cgtexFile.getVERSION() >= CGTEXFile.VERSION_INDEXED;
+        this.encoded = cgtexFile.getVERSION() >= CGTEXFile.VERSION_COMPRESSED;
+        this.mipmapped = cgtexFile.getVERSION() >= CGTEXFile.VERSION_MIPMAPPED;
+
+        // Запись заголовка
+        out.writeAscii(cgtexFile.getMAGIC());          // 4 байта для MAGIC
+        out.writeInt(cgtexFile.getVERSION());          // 4 байта для версии
+        this.countPos = out.position();
+        out.writeInt(0);                               // placeholder для количества текстур
+        this.dataOffsetPos = out.position();
+        out.writeLong(0L);                             // placeholder для dataOffset
+        if (indexed) {
+            out.writeLong(0L);                         // placeholder для tocOffset
+        }
+        this.dataOffset = out.position();
+    }
+
+    /**
+     * Sets how payloads of subsequently appended textures are encoded.
+     * Ignored for file versions without codec support.
+     */
+    public void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
+    /**
+     * Appends a texture whose data is already in memory.
+     */
+    public void append(TextureEntry tex) throws IOException {
+        if (!encoded) {
+            byte[] data = tex.getCompressedData();
+            writeRecordHeader(tex.getName(), tex.getWidth(), tex.getHeight(), tex.getFormat());
+            out.writeInt(data.length);  // Длина сжатиых данных
+            addTocEntry(tex.getName(), tex.getWidth(), tex.getHeight(), tex.getFormat(),
+                    NoneCodec.ID, data.length, data.length);
+            out.write(data);  // Сами данные текстуры
+            return;
+        }
+        if (!mipmapped && tex.getMipCount() > 1) {
+            // Без поддержки мипов цепочка хранится как одно целое
+            tex = new TextureEntry(tex.getWidth(), tex.getHeight(), tex.getName(), tex.getFormat(),
+                    tex.getCompressedData());
+        }
+
+        EncodedTextureEntry enc = compressionPolicy.encode(tex);
+        byte[] stored = enc.getStoredData();
+        writeRecordHeader(tex.getName(), tex.getWidth(), tex.getHeight(), tex.getFormat());
+        out.writeByte(enc.getCodec().id());  // Кодек данных
+        if (!mipmapped) {
+            out.writeInt(enc.getDataLength());   // Длина данных после декодирования
+            out.writeInt(stored.length);         // Длина данных в файле
+            addTocEntry(tex.getName(), tex.getWidth(), tex.getHeight(), tex.getFormat(),
+                    enc.getCodec().id(), stored.length, enc.getDataLength());
+            out.write(stored);
+            return;
+        }
+
+        int levels = enc.getMipCount();
+        long[] levelOffsets = new long[levels];
+        int[] levelLengths = new int[levels];
+        int[] levelRawLengths = new int[levels];
+        long position = out.position() + 1 + (long) levels * 2 * Integer.BYTES;
+        out.writeByte(levels);               // Число уровней mip-цепочки
+        for (int i = 0; i < levels; i++) {
+            levelRawLengths[i] = enc.getMipLevelLength(i);
+            levelLengths[i] = enc.getStoredLevelLength(i);
+            levelOffsets[i] = position;
+            position += levelLengths[i];
+            out.writeInt(levelRawLengths[i]); // Длина уровня после декодирования
+            out.writeInt(levelLengths[i]);    // Длина уровня в файле
+        }
+        toc.add(new CGTEXIndexEntry(tex.getName(), tex.getWidth(), tex.getHeight(), tex.getFormat(),
+                enc.getCodec().id(), levelOffsets, levelLengths, levelRawLengths));
+        out.write(stored);
+    }
+
+    /**
+     * Appends a texture whose data is read from a stream of unknown length.
+     * Without compression the stream is copied in chunks and the record length
+     * is patched afterwards; with compression it is read fully first.
+     * The stream is not closed.
+     */
+    public void append(String name, int width, int height, byte format, InputStream data) throws IOException {
+        if (encoded && compressionPolicy.isEnabled()) {
+            append(new TextureEntry(width, height, name, format, data.readAllBytes()));
+            return;
+        }
+        writeRecordHeader(name, width, height, format);
+        if (encoded) {
+            out.writeByte(NoneCodec.ID);
+        }
+        if (mipmapped) {
+            out.writeByte(1);
+        }
+        long lengthPos = out.position();
+        out.writeInt(0);  // placeholder для длины данных
+        if (encoded) {
+            out.writeInt(0);
+        }
+        long payloadPos = out.position();
+
+        if (copyBuffer == null) {
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+        }
+        long total = 0;
+        int read;
+        while ((read = data.read(copyBuffer)) != -1) {
+            total += read;
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("Texture data too large: " + name);
+            }
+            out.write(ByteBuffer.wrap(copyBuffer, 0, read));
+        }
+
+        out.writeIntAt(lengthPos, (int) total);
+        if (encoded) {
+            out.writeIntAt(lengthPos + Integer.BYTES, (int) total);
+        }
+        toc.add(new CGTEXIndexEntry(name, width, height, format, payloadPos, (int) total, NoneCodec.ID, (int) total));
+    }
+
+    /**
+     * Appends a texture whose data is the whole content of a file.
+     * Without compression the data is transferred channel-to-channel without
+     * passing through the heap; with compression it is read fully first.
+     */
+    public void append(String name, int width, int height, byte format, Path data) throws IOException {
+        if (encoded && compressionPolicy.isEnabled()) {
+            append(new TextureEntry(width, height, name, format, Files.readAllBytes(data)));
+            return;
+        }
+        try (FileChannel source = FileChannel.open(data, StandardOpenOption.READ)) {
+            long size = source.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Texture data too large: " + data);
+            }
+            writeRecordHeader(name, width, height, format);
+            if (encoded) {
+                out.writeByte(NoneCodec.ID);
+                if (mipmapped) {
+                    out.writeByte(1);
+                }
+                out.writeInt((int) size);
+            }
+            out.writeInt((int) size);
+            addTocEntry(name, width, height, format, NoneCodec.ID, (int) size, (int) size);
+            out.transferFrom(source, size);
+        }
+    }
+
+    private void writeRecordHeader(String name, int width, int height, byte format) throws IOException {
+        if (finished || closed) {
+            throw new IllegalStateException("CGTEX writer already " + (finished ? "finished" : "closed"));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Texture [{}]: name={} size={}x{} format={}", toc.size(), name, width, height, format);
+        }
+        out.writeShort(width);
+        out.writeShort(height);
+        out.writeString(name);    // Имя текстуры с динамической длиной
+        out.writeByte(format);    // Формат текстуры
+    }
+
+    private void addTocEntry(String name, int width, int height, byte format, byte codec, int length, int rawLength) {
+        toc.add(new CGTEXIndexEntry(name, width, height, format, out.position(), length, codec, rawLength));
+    }
+
+    /**
+     * Writes the table of contents and patches the header. Further appends are rejected.
+     * If this method fails, the file is truncated by {@link #close()}.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("CGTEX writer already closed");
+        }
+
+        long tocOffset = 0L;
+        if (indexed) {
+            tocOffset = out.position();
+            for (CGTEXIndexEntry entry : toc) {
+                out.writeShort(entry.getWidth());
+                out.writeShort(entry.getHeight());
+                out.writeString(entry.getName());
+                out.writeByte(entry.getFormat());
+                if (encoded) {
+                    out.writeByte(entry.getCodec());
+                }
+                if (mipmapped) {
+                    out.writeByte(entry.getMipCount());
+                    for (int i = 0; i < entry.getMipCount(); i++) {
+                        out.writeLong(entry.getLevelOffset(i));
+                        out.writeInt(entry.getLevelLength(i));
+                        out.writeInt(entry.getLevelRawLength(i));
+                    }
+                    continue;
+                }
+                out.writeLong(entry.getOffset());
+                out.writeInt(entry.getLength());
+                if (encoded) {
+                    out.writeInt(entry.getRawLength());
+                }
+            }
+        }
+
+        // Вставляем фактические значения количества текстур и смещений
+        out.writeIntAt(countPos, toc.size());
+        out.writeLongAt(dataOffsetPos, dataOffset);
+        if (indexed) {
+            out.writeLongAt(dataOffsetPos + Long.BYTES, tocOffset);
+        }
+
+        finished = true;
+
+        if (encoded) {
+            long raw = 0, stored = 0;
+            for (CGTEXIndexEntry entry : toc) {
+                raw += entry.getRawLength();
+                stored += entry.getLength();
+            }
+            logger.info("CGTEX written successfully, dataOffset={}, tocOffset={}, textures={}, payload {} -> {} bytes",
+                    dataOffset, tocOffset, toc.size(), raw, stored);
+        } else {
+            logger.info("CGTEX written successfully, dataOffset={}, tocOffset={}, textures={}",
+                    dataOffset, tocOffset, toc.size());
+        }
+    }
+
+    /**
+     * @return number of textures appended so far
+     */
+    public int getTextureCount() {
+        return toc.size();
+    }
+
+    public File getFile() {
+        return cgtexFile.getFile();
+    }
+
+    /**
+     * Closes the writer. If {@link #finish()} has not completed, the write is treated as
+     * failed and the file is truncated to zero length, so it cannot be mistaken for a
+     * complete pack. The underlying CGTEXFile is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!finished) {
+            logger.warn("CGTEX write not finished, truncating {} ({} textures discarded)",
+                    cgtexFile.getFile().getAbsolutePath(), toc.size());
+            cgtexFile.getRaf().setLength(0);
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package org.foxesworld.cge.core.io;
 
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Абстрактный класс для парсинга файлов в виде байтов.
- * Читает InputStream целиком в байты и вызывает абстрактный метод
- * для парсинга конкретного объекта из массива байтов.
+ * <p>
+ * Данные можно передать потоком, потоком известной длины, {@link ByteBuffer} или путём к файлу.
+ * Поток читается в массив одной копией (с известной длиной - сразу в массив точного размера),
+ * файл отображается в память без копирования. Наследники реализуют {@link #parseBytes(byte[])}
+ * и могут переопределить {@link #parseBuffer(ByteBuffer)}, чтобы разбирать буфер напрямую.
  */
 public abstract class ByteParser<T> {
 
@@ -21,6 +28,26 @@ public abstract class ByteParser<T> {
      */
     protected abstract T parseBytes(byte[] data) throws IOException;
 
+    /**
+     * Парсит данные между position и limit буфера. Реализация по умолчанию передаёт в
+     * {@link #parseBytes(byte[])} массив буфера, если буфер занимает его целиком, а иначе
+     * копирует данные в новый массив. Наследники, умеющие читать буфер напрямую, переопределяют
+     * этот метод, чтобы обойтись без копии.
+     *
+     * @param buffer данные; позицию буфера можно менять
+     * @return объект типа T
+     * @throws IOException при ошибках парсинга
+     */
+    protected T parseBuffer(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.limit() == buffer.array().length) {
+            return parseBytes(buffer.array());
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return parseBytes(data);
+    }
+
     /**
      * Метод для чтения из InputStream и запуска парсинга.
      *
@@ -32,15 +59,79 @@ public abstract class ByteParser<T> {
         if (inputStream == null) {
             throw new IllegalArgumentException("InputStream cannot be null");
         }
+        return parseBytes(inputStream.readAllBytes());
+    }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int read;
-        while ((read = inputStream.read(buffer)) != -1) {
-            baos.write(buffer, 0, read);
+    /**
+     * Читает ровно {@code length} байт из потока в массив точного размера и парсит их.
+     *
+     * @param inputStream входящий поток
+     * @param length      длина данных, например размер файла или ресурса
+     * @return объект типа T
+     * @throws EOFException если поток закончился раньше
+     * @throws IOException  при ошибках чтения или парсинга
+     */
+    public T parse(InputStream inputStream, long length) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("InputStream cannot be null");
+        }
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid data length: " + length);
+        }
+        // readNBytes(int) собирает данные из буферов по 8 КБ и копирует их ещё раз,
+        // поэтому читаем сразу в массив нужного размера
+        byte[] data = new byte[(int) length];
+        int off = 0;
+        while (off < data.length) {
+            int read = inputStream.read(data, off, data.length - off);
+            if (read < 0) {
+                throw new EOFException("Expected " + length + " bytes, got " + off);
+            }
+            off += read;
         }
-        byte[] data = baos.toByteArray();
-
         return parseBytes(data);
     }
-}
\ No newline at end of file
+
+    /**
+     * Парсит данные между position и limit буфера. Позиция переданного буфера не меняется.
+     *
+     * @param buffer данные
+     * @return объект типа T
+     * @throws IOException при ошибках парсинга
+     */
+    public T parse(ByteBuffer buffer) throws IOException {
+        if (buffer == null) {
+            throw new IllegalArgumentException("ByteBuffer cannot be null");
+        }
+        return parseBuffer(buffer.duplicate());
+    }
+
+    /**
+     * Отображает файл в память и парсит его без копирования в кучу.
+     *
+     * @param path файл
+     * @return объект типа T
+     * @throws IOException при ошибках чтения или парсинга
+     */
+    public T parse(Path path) throws IOException {
+        return parseBuffer(map(path));
+    }
+
+    /**
+     * Отображает файл в память только для чтения. Отображение остаётся действительным после
+     * закрытия канала и освобождается сборщиком мусора.
+     *
+     * @param path файл
+     * @return буфер с содержимым файла
+     * @throws IOException если файл нельзя прочитать или он больше 2 ГБ
+     */
+    protected static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path + " (" + size + " bytes)");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+}
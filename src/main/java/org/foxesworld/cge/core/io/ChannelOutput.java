@@ -0,0 +1,168 @@
+package org.foxesworld.cge.core.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Буферизованный вывод в FileChannel.
+ * <p>
+ * Небольшие поля (заголовки записей) собираются в переиспользуемый direct ByteBuffer
+ * и сбрасываются в канал крупными блоками. Большие массивы данных пишутся
+ * gathering-записью вместе с накопленным буфером, без промежуточного копирования.
+ * Порядок байт по умолчанию - BIG_ENDIAN, как у {@link java.io.RandomAccessFile}.
+ */
+public class ChannelOutput {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long flushedPosition;
+
+    /**
+     * @param channel  канал, в который ведётся запись (с его текущей позиции)
+     * @param capacity размер буфера в байтах
+     */
+    public ChannelOutput(FileChannel channel, int capacity) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.BIG_ENDIAN);
+        this.flushedPosition = channel.position();
+    }
+
+    public ChannelOutput(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @return логическая позиция в файле с учётом ещё не сброшенных байт
+     */
+    public long position() {
+        return flushedPosition + buffer.position();
+    }
+
+    public void writeByte(int value) throws IOException {
+        ensure(Byte.BYTES);
+        buffer.put((byte) value);
+    }
+
+    public void writeShort(int value) throws IOException {
+        ensure(Short.BYTES);
+        buffer.putShort((short) value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Пишет младший байт каждого символа, как {@link java.io.RandomAccessFile#writeBytes(String)}.
+     */
+    public void writeAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            writeByte(value.charAt(i));
+        }
+    }
+
+    /**
+     * Пишет строку в формате: длина (int) + байты UTF-8.
+     */
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        write(bytes);
+    }
+
+    /**
+     * Пишет массив байт. Если он помещается в буфер - копирует, иначе
+     * выполняет gathering-запись буфера и массива одним вызовом.
+     */
+    public void write(byte[] data) throws IOException {
+        write(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Пишет оставшиеся байты буфера данных (позиция исходного буфера не меняется).
+     */
+    public void write(ByteBuffer data) throws IOException {
+        ByteBuffer src = data.duplicate();
+        if (src.remaining() <= buffer.remaining()) {
+            buffer.put(src);
+            return;
+        }
+        buffer.flip();
+        ByteBuffer[] parts = {buffer, src};
+        long total = buffer.remaining() + (long) src.remaining();
+        long written = 0;
+        while (written < total) {
+            written += channel.write(parts);
+        }
+        flushedPosition += total;
+        buffer.clear();
+    }
+
+    /**
+     * Копирует {@code count} байт из другого канала (с его текущей позиции)
+     * средствами ОС, минуя heap.
+     */
+    public void transferFrom(FileChannel source, long count) throws IOException {
+        flush();
+        long done = 0;
+        while (done < count) {
+            long n = channel.transferFrom(source, flushedPosition + done, count - done);
+            if (n <= 0) {
+                throw new IOException("Unexpected end of source channel after " + done + " of " + count + " bytes");
+            }
+            done += n;
+        }
+        flushedPosition += count;
+        channel.position(flushedPosition);
+    }
+
+    /**
+     * Сбрасывает накопленные байты в канал.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushedPosition += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Перезаписывает long по абсолютной позиции (например, для патча заголовка).
+     * Сначала сбрасывает буфер; позиция последовательной записи не меняется.
+     */
+    public void writeLongAt(long position, long value) throws IOException {
+        writeAt(position, ByteBuffer.allocate(Long.BYTES).order(buffer.order()).putLong(0, value));
+    }
+
+    /**
+     * Перезаписывает int по абсолютной позиции.
+     */
+    public void writeIntAt(long position, int value) throws IOException {
+        writeAt(position, ByteBuffer.allocate(Integer.BYTES).order(buffer.order()).putInt(0, value));
+    }
+
+    private void writeAt(long position, ByteBuffer value) throws IOException {
+        flush();
+        long at = position;
+        while (value.hasRemaining()) {
+            at += channel.write(value, at);
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
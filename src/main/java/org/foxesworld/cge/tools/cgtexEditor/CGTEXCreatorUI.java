@@ -2,6 +2,7 @@ package org.foxesworld.cge.tools.cgtexEditor;
 
 import org.foxesworld.cge.core.file.cgtex.CGTEXFile;
 import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+import org.foxesworld.cge.core.file.cgtex.reader.ReadMode;
 import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
 import org.foxesworld.cge.tools.cgtexEditor.panels.FileListPanel;
 import org.foxesworld.cge.tools.cgtexEditor.panels.PreviewPanel;
@@ -15,7 +16,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.StringJoiner;
 
 /**
  * Main application window for creating and editing .cgtex files.
@@ -34,6 +34,7 @@ public class CGTEXCreatorUI extends JFrame {
     private final FileListPanel fileListPanel;
     private final PreviewPanel previewPanel;
     private File selectedCgtFile;
+    private CGTEXFile openCgtFile;     // opened lazily-read .cgtex backing the current list
 
     /**
      * Constructs the main UI, configures frame properties, initializes buttons,
@@ -82,7 +83,7 @@ public class CGTEXCreatorUI extends JFrame {
         );
 
         addBtn = createButton(
-                "Add DDS",
+                "Add Textures",
                 "add_icon.png",
                 "#1bcc36bd",
                 null,
@@ -175,8 +176,9 @@ public class CGTEXCreatorUI extends JFrame {
 
     /**
      * Handles the "Read CGTEX" button action:
-     * Opens a file chooser, reads the selected .cgtex file,
+     * Opens a file chooser, reads the table of contents of the selected .cgtex file,
      * converts TextureEntry objects to TextureInfo, and populates the FileListPanel.
+     * Texture data is read lazily, so the file stays open until another file is read or saved over.
      */
     private void onReadCGTEX() {
         JFileChooser chooser = UIUtils.createFileChooser("Select CGTEX File", FILTER_CGTEX, false);
@@ -185,23 +187,19 @@ public class CGTEXCreatorUI extends JFrame {
         }
 
         selectedCgtFile = chooser.getSelectedFile();
+        closeOpenCgtFile();
 
-        try (CGTEXFile reader = new CGTEXFile(selectedCgtFile, "r")) {
-            List<TextureEntry> entries = reader.readFile().getTextures();
+        try {
+            openCgtFile = new CGTEXFile(selectedCgtFile, "r");
+            List<TextureEntry> entries = openCgtFile.readFile(ReadMode.LAZY).getTextures();
             List<TextureInfo> loaded = new ArrayList<>(entries.size());
             for (TextureEntry entry : entries) {
-                TextureInfo info = new TextureInfo(
-                        new File(entry.getName()),
-                        entry.getWidth(),
-                        entry.getHeight(),
-                        entry.getName(),
-                        entry.getFormat(),
-                        entry.getCompressedData()
-                );
-                loaded.add(info);
+                loaded.add(new TextureInfo(entry));
             }
             fileListPanel.refreshFileList(loaded);
-        } catch (IOException e) {
+            fileListPanel.getThumbnails().loadSidecar(selectedCgtFile, loaded, fileListPanel.getFileList()::repaint);
+        } catch (IOException | RuntimeException e) {
+            closeOpenCgtFile();
             JOptionPane.showMessageDialog(
                     this,
                     "Cannot read CGTEX: " + e.getMessage(),
@@ -240,18 +238,22 @@ public class CGTEXCreatorUI extends JFrame {
             );
         }
 
-        try (CGTEXFile writer = new CGTEXFile(selectedCgtFile, "rw")) {
-            List<TextureEntry> entries = new ArrayList<>(textures.size());
-            for (TextureInfo ti : textures) {
-                entries.add(new TextureEntry(
-                        ti.getWidth(),
-                        ti.getHeight(),
-                        ti.getName(),
-                        ti.getFormatCode(),
-                        ti.getData()
-                ));
+        // Overwriting the file the list is lazily read from: load the data first
+        if (openCgtFile != null && openCgtFile.getFile().getAbsoluteFile().equals(selectedCgtFile.getAbsoluteFile())) {
+            textures.forEach(TextureInfo::pinData);
+            closeOpenCgtFile();
+        }
+
+        try {
+            try (CGTEXFile writer = new CGTEXFile(selectedCgtFile, "rw")) {
+                List<TextureEntry> entries = new ArrayList<>(textures.size());
+                for (TextureInfo ti : textures) {
+                    entries.add(ti.toEntry());
+                }
+                writer.writeFile(entries);
             }
-            writer.writeFile(entries);
+            // after the pack is closed, so the sidecar is not older than it; written in the background
+            fileListPanel.getThumbnails().saveSidecar(selectedCgtFile, textures);
             JOptionPane.showMessageDialog(
                     this,
                     "Saved: " + selectedCgtFile.getName(),
@@ -269,6 +271,20 @@ public class CGTEXCreatorUI extends JFrame {
         }
     }
 
+    /**
+     * Closes the .cgtex file backing lazily loaded textures, if any.
+     */
+    private void closeOpenCgtFile() {
+        if (openCgtFile != null) {
+            try {
+                openCgtFile.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            openCgtFile = null;
+        }
+    }
+
     /**
      * Application entry point. Sets up the theme and launches the UI on the Event Dispatch Thread.
      *
@@ -283,31 +299,7 @@ public class CGTEXCreatorUI extends JFrame {
     }
 
     public void initLogDirectory(String pathWithEnv) {
-        String[] parts = pathWithEnv.split("[/\\\\]+");
-        StringJoiner pathBuilder = new StringJoiner(File.separator);
-
-        for (String part : parts) {
-            if (part.equalsIgnoreCase("APPDATA")) {
-                String appData = System.getenv("APPDATA");
-                if (appData == null) {
-                    throw new IllegalStateException("APPDATA переменная не определена в системе.");
-                }
-                pathBuilder.add(appData);
-            } else {
-                pathBuilder.add(part);
-            }
-        }
-
-        File logDir = new File(pathBuilder.toString());
-
-        if (!logDir.exists()) {
-            boolean created = logDir.mkdirs();
-            if (!created) {
-                throw new RuntimeException("Не удалось создать директорию: " + logDir.getAbsolutePath());
-            }
-        }
-
-        System.setProperty("log.dir", logDir.getAbsolutePath());
+        UIUtils.initLogDirectory(pathWithEnv);
     }
 
     public JButton getAddBtn() {
@@ -1,5 +1,6 @@
 package org.foxesworld.cge.tools.cgtexEditor;
 
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
 import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
 
 import javax.imageio.ImageIO;
@@ -10,8 +11,10 @@ import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiConsumer;
 
 public class FileExporter {
@@ -44,6 +47,29 @@ public class FileExporter {
         formats.put(ext, new ExportFormat(ext, description, handler));
     }
 
+    /**
+     * @return extensions of all registered export formats, in registration order
+     */
+    public static Set<String> getFormats() {
+        return Collections.unmodifiableSet(formats.keySet());
+    }
+
+    /**
+     * Exports a texture to a file without any UI, e.g. from the command line.
+     *
+     * @param ti  the texture to export
+     * @param file destination file
+     * @param ext  extension of a registered format, e.g. "png" or "dds"
+     * @throws IllegalArgumentException if no format is registered for the extension
+     */
+    public static void export(TextureInfo ti, File file, String ext) {
+        ExportFormat fmt = formats.get(ext.toLowerCase());
+        if (fmt == null) {
+            throw new IllegalArgumentException("Unknown export format: " + ext);
+        }
+        fmt.handler().accept(ti, file);
+    }
+
     public static void exportTexture(Component parent, TextureInfo ti) {
         JFileChooser chooser = new JFileChooser();
         chooser.setDialogTitle("Save as...");
@@ -82,14 +108,20 @@ public class FileExporter {
         }
     }
 
+    /**
+     * Builds the DDS header for the texture. DXT and BC4/BC5 use a legacy FourCC;
+     * BC7 has none, so it gets the {@code DX10} extended header (148 bytes in total).
+     */
     private static byte[] createDDSHeader(TextureInfo ti) {
         int height = ti.getHeight();
         int width  = ti.getWidth();
         byte fmt   = ti.getFormatCode();
+        int mipCount = ti.getMipCount();
 
-        int linearSize = Math.max(1, ((width + 3) / 4)) * Math.max(1, ((height + 3) / 4)) * 16;
+        int linearSize = (int) TextureEntry.expectedDataLength(width, height, fmt);
+        boolean dx10 = fmt == TextureEntry.FORMAT_BC7;
 
-        ByteBuffer buf = ByteBuffer.allocate(128);
+        ByteBuffer buf = ByteBuffer.allocate(dx10 ? 148 : 128);
         buf.order(ByteOrder.LITTLE_ENDIAN);
 
         buf.put((byte) 'D'); // 'D'
@@ -103,7 +135,7 @@ public class FileExporter {
         buf.putInt(width);       // dwWidth
         buf.putInt(linearSize);  // dwPitchOrLinearSize
         buf.putInt(0);           // dwDepth
-        buf.putInt(0);           // dwMipMapCount
+        buf.putInt(mipCount > 1 ? mipCount : 0); // dwMipMapCount
 
         for (int i = 0; i < 11; i++) {
             buf.putInt(0);       // dwReserved1[11]
@@ -114,9 +146,12 @@ public class FileExporter {
         buf.putInt(0x00000004);  // dwFlags: DDPF_FOURCC
 
         int fourCC = switch (fmt) {
-            case 1 -> 0x31545844; // DXT1
-            case 3 -> 0x33545844; // DXT3
-            case 5 -> 0x35545844; // DXT5
+            case TextureEntry.FORMAT_DXT1 -> 0x31545844; // DXT1
+            case TextureEntry.FORMAT_DXT3 -> 0x33545844; // DXT3
+            case TextureEntry.FORMAT_DXT5 -> 0x35545844; // DXT5
+            case TextureEntry.FORMAT_BC4  -> 0x31495441; // ATI1
+            case TextureEntry.FORMAT_BC5  -> 0x32495441; // ATI2
+            case TextureEntry.FORMAT_BC7  -> 0x30315844; // DX10
             default -> 0;
         };
         buf.putInt(fourCC);      // dwFourCC
@@ -127,13 +162,22 @@ public class FileExporter {
         buf.putInt(0);           // dwBBitMask
         buf.putInt(0);           // dwABitMask
 
-        buf.putInt(0x1000);      // dwCaps1: DDSCAPS_TEXTURE
+        // dwCaps1: DDSCAPS_TEXTURE (+ DDSCAPS_COMPLEX | DDSCAPS_MIPMAP for a mip chain)
+        buf.putInt(mipCount > 1 ? 0x401008 : 0x1000);
         buf.putInt(0);           // dwCaps2
         buf.putInt(0);           // dwCaps3
         buf.putInt(0);           // dwCaps4
 
         buf.putInt(0);           // dwReserved2
 
+        if (dx10) {
+            buf.putInt(98);      // dxgiFormat: DXGI_FORMAT_BC7_UNORM
+            buf.putInt(3);       // resourceDimension: TEXTURE2D
+            buf.putInt(0);       // miscFlag
+            buf.putInt(1);       // arraySize
+            buf.putInt(0);       // miscFlags2
+        }
+
         return buf.array();
     }
 
@@ -0,0 +1,238 @@
+package org.foxesworld.cge.tools.cgtexEditor.info;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Общий LRU-кэш декодированных изображений с бюджетом в байтах.
+ * <p>
+ * Размер изображения считается по его растру (для {@code TYPE_INT_ARGB} - {@code w * h * 4}).
+ * Когда сумма превышает бюджет, вытесняются давно не использованные изображения; изображение
+ * больше всего бюджета не кэшируется. В режиме soft references записи дополнительно могут
+ * быть освобождены сборщиком мусора при нехватке памяти.
+ * <p>
+ * Если два потока одновременно запрашивают отсутствующий ключ, загрузчик выполняется
+ * один раз, а второй поток ждёт его результата. Удаление ключа во время загрузки
+ * ({@link #invalidate}, {@link #invalidateIf}, {@link #clear}) отменяет сохранение её
+ * результата: ожидающие его получат, но в кэш он не попадёт.
+ * <p>
+ * Общий экземпляр ({@link #shared()}) настраивается системными свойствами
+ * {@code cgtex.imageCache.maxBytes} (по умолчанию min(256 MB, 1/4 heap)) и
+ * {@code cgtex.imageCache.soft} (по умолчанию false).
+ */
+public final class DecodedImageCache {
+
+    /** Счётчики кэша на момент вызова {@link #stats()}. */
+    public record Stats(long hits, long misses, long evictions, long bytes, long maxBytes, int entries) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private static final class Entry {
+        final BufferedImage strong;
+        final SoftReference<BufferedImage> soft;
+        final long bytes;
+
+        Entry(BufferedImage image, long bytes, boolean softReference) {
+            this.strong = softReference ? null : image;
+            this.soft = softReference ? new SoftReference<>(image) : null;
+            this.bytes = bytes;
+        }
+
+        BufferedImage get() {
+            return strong != null ? strong : soft.get();
+        }
+    }
+
+    private static final DecodedImageCache SHARED = new DecodedImageCache(
+            Long.getLong("cgtex.imageCache.maxBytes", Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 4)),
+            Boolean.getBoolean("cgtex.imageCache.soft"));
+
+    private final boolean softReferences;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<Object, CompletableFuture<BufferedImage>> loading = new HashMap<>();
+    private long maxBytes;
+    private long bytes;
+    private long hits, misses, evictions;
+
+    /**
+     * @param maxBytes       бюджет в байтах
+     * @param softReferences хранить изображения через {@link SoftReference}
+     */
+    public DecodedImageCache(long maxBytes, boolean softReferences) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.softReferences = softReferences;
+    }
+
+    /**
+     * @return кэш, общий для всех {@link TextureInfo}
+     */
+    public static DecodedImageCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Возвращает изображение из кэша или загружает его {@code loader}. Одновременные запросы
+     * одного ключа выполняют загрузчик один раз.
+     *
+     * @throws RuntimeException исключение загрузчика (всем ожидающим этот ключ)
+     */
+    public BufferedImage get(Object key, Supplier<BufferedImage> loader) {
+        CompletableFuture<BufferedImage> pending;
+        CompletableFuture<BufferedImage> own = null;
+        synchronized (this) {
+            BufferedImage cached = lookup(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            pending = loading.get(key);
+            if (pending == null) {
+                own = new CompletableFuture<>();
+                loading.put(key, own);
+            }
+        }
+        if (own == null) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        BufferedImage image;
+        try {
+            image = loader.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                loading.remove(key, own);
+            }
+            own.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            // ключ могли удалить во время загрузки - тогда результат не кэшируется
+            if (loading.remove(key, own)) {
+                put(key, image);
+            }
+        }
+        own.complete(image);
+        return image;
+    }
+
+    /**
+     * @return изображение из кэша или null; не загружает и не меняет счётчики промахов
+     */
+    public synchronized BufferedImage getIfPresent(Object key) {
+        BufferedImage cached = lookup(key);
+        if (cached != null) {
+            hits++;
+        }
+        return cached;
+    }
+
+    /**
+     * Удаляет запись; загрузка этого ключа, идущая в этот момент, в кэш уже не попадёт.
+     */
+    public synchronized void invalidate(Object key) {
+        loading.remove(key);
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Удаляет все записи, ключи которых удовлетворяют {@code filter}, включая идущие загрузки.
+     */
+    public synchronized void invalidateIf(Predicate<Object> filter) {
+        loading.keySet().removeIf(filter);
+        for (Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Object, Entry> e = it.next();
+            if (filter.test(e.getKey())) {
+                bytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        loading.clear();
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Меняет бюджет; лишние записи вытесняются сразу.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, bytes, maxBytes, entries.size());
+    }
+
+    /**
+     * @return размер пикселей изображения в байтах
+     */
+    public static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private BufferedImage lookup(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        BufferedImage image = entry.get();
+        if (image == null) {
+            // освобождено сборщиком мусора
+            entries.remove(key);
+            bytes -= entry.bytes;
+            evictions++;
+        }
+        return image;
+    }
+
+    private void put(Object key, BufferedImage image) {
+        long size = sizeOf(image);
+        if (size > maxBytes) {
+            return;
+        }
+        Entry old = entries.put(key, new Entry(image, size, softReferences));
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+        bytes += size;
+        evict();
+    }
+
+    private void evict() {
+        for (Iterator<Entry> it = entries.values().iterator(); bytes > maxBytes && it.hasNext(); ) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.foxesworld.cge.tools.cgtexEditor.info;
 
+import org.foxesworld.cge.core.file.cgtex.LazyTextureEntry;
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
 import org.foxesworld.cge.tools.cgtexEditor.preview.DDSDecoder;
 
 import java.awt.image.BufferedImage;
@@ -10,28 +12,139 @@ public class TextureInfo {
     private final int width, height;
     private String name;
     private final byte formatCode;
-    private byte[] data;
-    private BufferedImage preview;
+    private final int mipCount;
+    // читаются потоками предпросмотра, а pinData/setData меняют их на EDT
+    private volatile byte[] data;
+    private volatile TextureEntry source;      // источник данных, если data ещё не загружены
+
+    /** Ключ в {@link DecodedImageCache}; size 0 - полноразмерный предпросмотр. */
+    private record ImageKey(TextureInfo texture, int size) {
+    }
 
     public TextureInfo(File file, int width, int height, String name, byte formatCode, byte[] data) {
+        this(file, width, height, name, formatCode, data, 1);
+    }
+
+    /**
+     * @param data     all mip levels one after another, largest first
+     * @param mipCount number of mip levels in {@code data}
+     */
+    public TextureInfo(File file, int width, int height, String name, byte formatCode, byte[] data, int mipCount) {
         this.file       = file;
         this.width      = width;
         this.height     = height;
         this.name = name;
         this.formatCode = formatCode;
         this.data       = data;
+        this.mipCount   = mipCount;
+    }
+
+    /**
+     * Creates a TextureInfo whose data is fetched from the given entry on demand.
+     * With a {@link LazyTextureEntry} the payload is read only when it is needed.
+     */
+    public TextureInfo(TextureEntry entry) {
+        this(new File(entry.getName()), entry.getWidth(), entry.getHeight(), entry.getName(), entry.getFormat(), null,
+                entry.getMipCount());
+        this.source = entry;
     }
 
     public File getFile() { return file; }
     public int getWidth() { return width; }
     public int getHeight() { return height; }
     public byte getFormatCode() { return formatCode; }
-    public byte[] getData() { return data; }
+    public int getMipCount() { return mipCount; }
+    public byte[] getData() {
+        byte[] d = data;
+        if (d != null) {
+            return d;
+        }
+        TextureEntry s = source;
+        if (s != null) {
+            return s.getCompressedData();
+        }
+        // pinData мог записать data между двумя чтениями выше
+        return data;
+    }
+    /**
+     * Returns the full-size preview. Decoded images are kept in the shared
+     * {@link DecodedImageCache}, so it may be decoded again after eviction.
+     */
     public BufferedImage getPreviewImage() {
-        if (preview == null) {
-            preview = DDSDecoder.decode(width, height, formatCode, data);
+        return DecodedImageCache.shared().get(new ImageKey(this, 0), () -> {
+            BufferedImage image = DDSDecoder.decodeParallel(width, height, formatCode, getData());
+            releaseData();
+            return image;
+        });
+    }
+
+    /**
+     * Returns a preview for a {@code maxSize} box. With a mip chain this is the smallest level
+     * that is at least {@code maxSize} on its larger side, and only that level is read. Without
+     * one the texture is decoded directly at a reduced resolution, no larger than {@code maxSize}.
+     * A full-size preview that is already decoded is reused as is.
+     */
+    public BufferedImage getThumbnail(int maxSize) {
+        DecodedImageCache cache = DecodedImageCache.shared();
+        BufferedImage preview = cache.getIfPresent(new ImageKey(this, 0));
+        if (preview != null) {
+            return preview;
+        }
+        return cache.get(new ImageKey(this, maxSize), () -> {
+            BufferedImage thumbnail;
+            int level = TextureEntry.mipLevelFor(width, height, mipCount, maxSize);
+            if (level > 0) {
+                thumbnail = DDSDecoder.decode(TextureEntry.mipDimension(width, level),
+                        TextureEntry.mipDimension(height, level), formatCode, getMipLevel(level));
+            } else {
+                thumbnail = DDSDecoder.decodeThumbnail(width, height, formatCode, getData(), maxSize);
+            }
+            releaseData();
+            return thumbnail;
+        });
+    }
+
+    /**
+     * Drops this texture's decoded images from the shared cache, e.g. when it is removed from the list.
+     */
+    public void releaseImages() {
+        DecodedImageCache.shared().invalidateIf(key -> key instanceof ImageKey k && k.texture() == this);
+    }
+
+    /**
+     * Returns one level of the mip chain. With a lazy source only that level is read from the file.
+     */
+    public byte[] getMipLevel(int level) {
+        TextureEntry s = source;
+        if (data == null && s != null) {
+            return s.getMipLevel(level);
+        }
+        return toEntry().getMipLevel(level);
+    }
+
+    /**
+     * Drops lazily loaded data; it will be read again from the source on the next access.
+     */
+    public void releaseData() {
+        if (source instanceof LazyTextureEntry lazy) {
+            lazy.unload();
+        }
+    }
+
+    /**
+     * Copies the data from the source into this TextureInfo, detaching it from the source file.
+     * {@code data} is set before {@code source} is cleared, so a thread that no longer sees the
+     * source sees the data.
+     */
+    public void pinData() {
+        TextureEntry s = source;
+        if (data == null && s != null) {
+            data = s.getCompressedData();
+            if (s instanceof LazyTextureEntry lazy) {
+                lazy.unload();
+            }
         }
-        return preview;
+        source = null;
     }
 
     public String removeExtension(String fileName) {
@@ -42,12 +155,20 @@ public class TextureInfo {
         return fileName;
     }
 
+    /**
+     * @return a TextureEntry with this texture's metadata and data, for writing to a CGTEX file
+     */
+    public TextureEntry toEntry() {
+        return new TextureEntry(width, height, name, formatCode, getData(), mipCount);
+    }
+
     public void setName(String name) {
         this.name = name;
     }
 
     public void setData(byte[] data) {
         this.data = data;
+        releaseImages();
     }
 
     public String getName() {
@@ -1,10 +1,16 @@
 package org.foxesworld.cge.tools.cgtexEditor.panels;
 
+import org.foxesworld.cge.core.file.cgtex.writer.CGTEXPackPipeline;
 import org.foxesworld.cge.tools.cgtexEditor.CGTEXCreatorUI;
 import org.foxesworld.cge.tools.cgtexEditor.FileExporter;
 import org.foxesworld.cge.tools.cgtexEditor.utils.UIUtils;
 import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
 import org.foxesworld.cge.tools.cgtexEditor.preview.DDSParser;
+import org.foxesworld.cge.tools.cgtexEditor.preview.DXTEncoder;
+import org.foxesworld.cge.tools.cgtexEditor.preview.ImageImporter;
+import org.foxesworld.cge.tools.cgtexEditor.preview.PreviewLoader;
+import org.foxesworld.cge.tools.cgtexEditor.preview.TextureCellRenderer;
+import org.foxesworld.cge.tools.cgtexEditor.preview.ThumbnailStore;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
@@ -13,30 +19,38 @@ import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 public class FileListPanel extends JPanel {
     private static final String FILTER_DDS = "dds";
     private static final int COUNT_PADDING = 10;
+    private static final int MAX_LISTED_ERRORS = 20;
     private final List<TextureInfo> textures = new ArrayList<>();
     private final DefaultListModel<TextureInfo> listModel = new DefaultListModel<>();
     private final JList<TextureInfo> fileList = new JList<>(listModel);
     private final JLabel countLabel = new JLabel("0");
     private final JLayeredPane layeredPane;
     private final JTextField filterField = new JTextField(20);
+    private final ThumbnailStore thumbnails = new ThumbnailStore(PreviewLoader.shared());
+    private final JButton addBtn;
+    // incremented when the list is replaced, so an import still running for the old list is dropped
+    private int listGeneration;
 
     private List<TextureInfo> allTextures = new ArrayList<>(); // keep the full list for filtering
 
     public FileListPanel(CGTEXCreatorUI ui) {
         super(new BorderLayout(5,5));
-        ui.getAddBtn().addActionListener(e -> onAdd());
+        addBtn = ui.getAddBtn();
+        addBtn.addActionListener(e -> onAdd());
         ui.getRemBtn().addActionListener(e -> onRemove());
 
         fileList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        fileList.setCellRenderer(new org.foxesworld.cge.tools.cgtexEditor.preview.TextureCellRenderer());
+        fileList.setCellRenderer(new TextureCellRenderer(thumbnails));
 
         JPopupMenu menu = new JPopupMenu();
         JMenuItem miCopy = new JMenuItem("Copy name");
@@ -76,6 +90,8 @@ public class FileListPanel extends JPanel {
 
         JScrollPane scroll = new JScrollPane(fileList);
         scroll.setBorder(new TitledBorder("Texture Files"));
+        // drop thumbnail requests for rows that scrolled out of view
+        scroll.getViewport().addChangeListener(e -> retainVisibleThumbnails());
 
         countLabel.setFont(countLabel.getFont().deriveFont(Font.BOLD, 48f));
         countLabel.setForeground(new Color(0, 0, 0, 80));
@@ -137,6 +153,9 @@ public class FileListPanel extends JPanel {
     }
 
     public void refreshFileList(List<TextureInfo> newList) {
+        listGeneration++;
+        allTextures.forEach(TextureInfo::releaseImages);
+        thumbnails.clear();
         listModel.clear();
         textures.clear();
         allTextures.clear();
@@ -172,36 +191,117 @@ public class FileListPanel extends JPanel {
         return fileList.getSelectedValue();
     }
 
+    /**
+     * Adds the selected DDS files and images. Files are read, validated and parsed in
+     * parallel off the event dispatch thread, images are compressed to DXT on the way in.
+     * Textures appear in the list as they are loaded, in the order they were selected;
+     * files that could not be loaded are reported in one message at the end.
+     */
     private void onAdd() {
-        JFileChooser chooser = UIUtils.createFileChooser("Select DDS Files", FILTER_DDS, true);
+        List<String> extensions = new ArrayList<>(ImageImporter.EXTENSIONS);
+        extensions.add(0, FILTER_DDS);
+        JFileChooser chooser = UIUtils.createFileChooser("Select Textures", true, "DDS and images",
+                extensions.toArray(String[]::new));
         if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
-        for (File f : chooser.getSelectedFiles()) {
-            try {
-                byte[] raw = Files.readAllBytes(f.toPath());
-                TextureInfo ti = DDSParser.parseBytes(raw);
-                ti.setName(UIUtils.stripExtension(f.getName()));
-                ti.setData(raw);
-                allTextures.add(ti);
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(
-                        this,
-                        "Cannot parse DDS: " + f.getName() + "\n" + ex.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                );
+        List<File> files = List.of(chooser.getSelectedFiles());
+        int generation = listGeneration;
+        List<String> errors = new ArrayList<>();
+        addBtn.setEnabled(false);
+
+        new SwingWorker<Void, LoadedTexture>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                try (CGTEXPackPipeline pipeline = new CGTEXPackPipeline()) {
+                    pipeline.forEachOrdered(files, FileListPanel::loadTexture, this::publish);
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<LoadedTexture> chunk) {
+                if (generation != listGeneration) {
+                    return;
+                }
+                for (LoadedTexture loaded : chunk) {
+                    if (loaded.error() == null) {
+                        allTextures.add(loaded.texture());
+                    } else {
+                        errors.add(loaded.file().getName() + ": " + loaded.error().getMessage());
+                    }
+                }
+                filterList();
+            }
+
+            @Override
+            protected void done() {
+                addBtn.setEnabled(true);
+                try {
+                    get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    errors.add(ex.getCause().getMessage());
+                }
+                if (!errors.isEmpty() && generation == listGeneration) {
+                    showLoadErrors(errors);
+                }
             }
+        }.execute();
+    }
+
+    private void showLoadErrors(List<String> errors) {
+        int shown = Math.min(errors.size(), MAX_LISTED_ERRORS);
+        StringBuilder message = new StringBuilder("Cannot load ")
+                .append(errors.size()).append(errors.size() == 1 ? " texture:" : " textures:");
+        for (String error : errors.subList(0, shown)) {
+            message.append('\n').append(error);
+        }
+        if (errors.size() > shown) {
+            message.append("\n... and ").append(errors.size() - shown).append(" more");
+        }
+        JOptionPane.showMessageDialog(this, message.toString(), "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    private static LoadedTexture loadTexture(File f) {
+        try {
+            TextureInfo texture = ImageImporter.isImage(f.toPath())
+                    ? ImageImporter.readTexture(f.toPath(), ImageImporter.FORMAT_AUTO, DXTEncoder.Quality.HIGH)
+                    : DDSParser.readTexture(f.toPath());
+            CGTEXPackPipeline.validate(texture.toEntry(), f);
+            return new LoadedTexture(f, texture, null);
+        } catch (IOException | RuntimeException ex) {
+            return new LoadedTexture(f, null, ex);
         }
-        filterList();
     }
 
     private void onRemove() {
         for (TextureInfo ti : fileList.getSelectedValuesList()) {
-            allTextures.removeIf(t -> t.getName().equals(ti.getName()));
+            allTextures.removeIf(t -> {
+                if (!t.getName().equals(ti.getName())) return false;
+                t.releaseImages();
+                thumbnails.invalidate(t);
+                return true;
+            });
         }
         filterList();
     }
 
+    private void retainVisibleThumbnails() {
+        int first = fileList.getFirstVisibleIndex(), last = fileList.getLastVisibleIndex();
+        Set<TextureInfo> visible = new HashSet<>();
+        for (int i = Math.max(first, 0); i <= last; i++) {
+            visible.add(listModel.get(i));
+        }
+        thumbnails.retainPending(visible);
+    }
+
     public JList<TextureInfo> getFileList() {
         return fileList;
     }
-}
\ No newline at end of file
+
+    public ThumbnailStore getThumbnails() {
+        return thumbnails;
+    }
+
+    private record LoadedTexture(File file, TextureInfo texture, Exception error) {}
+}
@@ -3,6 +3,7 @@ package org.foxesworld.cge.tools.cgtexEditor.panels;
 import org.foxesworld.cge.tools.cgtexEditor.CGTEXCreatorUI;
 import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
 import org.foxesworld.cge.tools.cgtexEditor.preview.PreviewCell;
+import org.foxesworld.cge.tools.cgtexEditor.preview.PreviewLoader;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
@@ -17,6 +18,7 @@ public class PreviewPanel extends JPanel {
      * Constructs a PreviewPanel with a titled border labeled "Preview".
      */
     private final CGTEXCreatorUI cgtexCreatorUI;
+    private final PreviewLoader.Slot previewSlot = PreviewLoader.shared().newSlot();
     public PreviewPanel(CGTEXCreatorUI cgtexCreatorUI) {
         super(new BorderLayout());
         this.cgtexCreatorUI = cgtexCreatorUI;
@@ -26,25 +28,27 @@ public class PreviewPanel extends JPanel {
     /**
      * Updates the preview area to show the provided TextureInfo.
      * If the textureInfo parameter is null, the panel is cleared.
-     * Otherwise, a new PreviewCell is created and added to the center of the panel.
+     * Otherwise, a new PreviewCell with a placeholder is shown at once and the image is
+     * decoded in the background; a pending decode for the previous texture is cancelled.
      *
      * @param textureInfo the TextureInfo object to preview; if null, clears the panel
      */
     public void updatePreview(TextureInfo textureInfo) {
         this.removeAll();
-        if (textureInfo != null) {
-            try {
-                PreviewCell cell = new PreviewCell(textureInfo);
-                this.add(cell, BorderLayout.CENTER);
-            } catch (Exception e) {
+        if (textureInfo == null) {
+            previewSlot.cancel();
+        } else {
+            PreviewCell cell = new PreviewCell(textureInfo);
+            this.add(cell, BorderLayout.CENTER);
+            previewSlot.submit(() -> PreviewCell.renderPreview(textureInfo), cell::setPreview, e -> {
+                cell.setPlaceholder("No preview");
                 JOptionPane.showMessageDialog(
                         this,
                         "Cannot display preview: " + e.getMessage(),
                         "Error",
                         JOptionPane.ERROR_MESSAGE
                 );
-            }
-
+            });
         }
 
         this.revalidate();
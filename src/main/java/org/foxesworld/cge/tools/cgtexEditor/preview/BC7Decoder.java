@@ -0,0 +1,262 @@
+package org.foxesworld.cge.tools.cgtexEditor.preview;
+
+import java.util.Arrays;
+
+/**
+ * Декодер одного блока BC7 (16 байт) в 16 пикселей ARGB. Используется {@link DDSDecoder};
+ * состояние блока передаётся снаружи в {@link State}, поэтому декодирование не выделяет память.
+ * <p>
+ * Поддерживаются все 8 режимов; блок с недопустимым режимом декодируется в прозрачный чёрный,
+ * как того требует спецификация.
+ */
+final class BC7Decoder {
+
+    // Параметры режимов 0..7: число подмножеств, биты разбиения, поворота, выбора индекса,
+    // цвета, альфы, p-бит на конец / общий p-бит на подмножество, биты индексов (основных и вторых)
+    private static final int[] SUBSETS = {3, 2, 3, 2, 1, 1, 1, 2};
+    private static final int[] PARTITION_BITS = {4, 6, 6, 6, 0, 0, 0, 6};
+    private static final int[] ROTATION_BITS = {0, 0, 0, 0, 2, 2, 0, 0};
+    private static final int[] INDEX_SELECTION_BITS = {0, 0, 0, 0, 1, 0, 0, 0};
+    private static final int[] COLOR_BITS = {4, 6, 5, 7, 5, 7, 7, 5};
+    private static final int[] ALPHA_BITS = {0, 0, 0, 0, 6, 8, 7, 5};
+    private static final boolean[] ENDPOINT_PBITS = {true, false, false, true, false, false, true, true};
+    private static final boolean[] SHARED_PBITS = {false, true, false, false, false, false, false, false};
+    private static final int[] INDEX_BITS = {3, 3, 2, 2, 2, 2, 4, 2};
+    private static final int[] INDEX2_BITS = {0, 0, 0, 0, 3, 2, 0, 0};
+
+    private static final int[] WEIGHTS2 = {0, 21, 43, 64};
+    private static final int[] WEIGHTS3 = {0, 9, 18, 27, 37, 46, 55, 64};
+    private static final int[] WEIGHTS4 = {0, 4, 9, 13, 17, 21, 26, 30, 34, 38, 43, 47, 51, 55, 60, 64};
+
+    /** Разбиения на 2 подмножества: бит i - подмножество пикселя i. */
+    static final int[] PARTITIONS2 = {
+            0xCCCC, 0x8888, 0xEEEE, 0xECC8, 0xC880, 0xFEEC, 0xFEC8, 0xEC80,
+            0xC800, 0xFFEC, 0xFE80, 0xE800, 0xFFE8, 0xFF00, 0xFFF0, 0xF000,
+            0xF710, 0x008E, 0x7100, 0x08CE, 0x008C, 0x7310, 0x3100, 0x8CCE,
+            0x088C, 0x3110, 0x6666, 0x366C, 0x17E8, 0x0FF0, 0x718E, 0x399C,
+            0xAAAA, 0xF0F0, 0x5A5A, 0x33CC, 0x3C3C, 0x55AA, 0x9696, 0xA55A,
+            0x73CE, 0x13C8, 0x324C, 0x3BDC, 0x6996, 0xC33C, 0x9966, 0x0660,
+            0x0272, 0x04E4, 0x4E40, 0x2720, 0xC936, 0x936C, 0x39C6, 0x639C,
+            0x9336, 0x9CC6, 0x817E, 0xE718, 0xCCF0, 0x0FCC, 0x7744, 0xEE22
+    };
+
+    /** Разбиения на 3 подмножества, по строкам 4x4. */
+    private static final String[] PARTITIONS3_TABLE = {
+            "0011001102212222", "0001001122112221", "0000200122112211", "0222002200110111",
+            "0000000011221122", "0011001100220022", "0022002211111111", "0011001122112211",
+            "0000000011112222", "0000111111112222", "0000111122222222", "0012001200120012",
+            "0112011201120112", "0122012201220122", "0011011211221222", "0011200122002220",
+            "0001001101121122", "0111001120012200", "0000112211221122", "0022002200221111",
+            "0111011102220222", "0001000122212221", "0000001101220122", "0000110022102210",
+            "0122012200110000", "0012001211222222", "0110122112210110", "0000011012211221",
+            "0022110211020022", "0110011020022222", "0011012201220011", "0000200022112221",
+            "0000000211221222", "0222002200120011", "0011001200220222", "0120012001200120",
+            "0000111122220000", "0120120120120120", "0120201212010120", "0011220011220011",
+            "0011112222000011", "0101010122222222", "0000000021212121", "0022112200221122",
+            "0022001100220011", "0220122102201221", "0101222222220101", "0000212121212121",
+            "0101010101012222", "0222011102220111", "0002111200021112", "0000211221122112",
+            "0222011101110222", "0002111211120002", "0110011001102222", "0000000021122112",
+            "0110011022222222", "0022001100110022", "0022112211220022", "0000000000002112",
+            "0002000100020001", "0222122202221222", "0101222222222222", "0111201122012220"
+    };
+
+    /** Разбиения на 3 подмножества: 2 бита на пиксель, пиксель i в битах 2i..2i+1. */
+    static final int[] PARTITIONS3 = new int[64];
+
+    /** Опорный пиксель второго подмножества при 2 подмножествах. */
+    static final int[] ANCHOR2 = {
+            15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15,
+            15, 2, 8, 2, 2, 8, 8, 15, 2, 8, 2, 2, 8, 8, 2, 2,
+            15, 15, 6, 8, 2, 8, 15, 15, 2, 8, 2, 2, 2, 15, 15, 6,
+            6, 2, 6, 8, 15, 15, 2, 2, 15, 15, 15, 15, 15, 2, 2, 15
+    };
+
+    /** Опорные пиксели второго и третьего подмножеств при 3 подмножествах. */
+    static final int[] ANCHOR3_SECOND = {
+            3, 3, 15, 15, 8, 3, 15, 15, 8, 8, 6, 6, 6, 5, 3, 3,
+            3, 3, 8, 15, 3, 3, 6, 10, 5, 8, 8, 6, 8, 5, 15, 15,
+            8, 15, 3, 5, 6, 10, 8, 15, 15, 3, 15, 5, 15, 15, 15, 15,
+            3, 15, 5, 5, 5, 8, 5, 10, 5, 10, 8, 13, 15, 12, 3, 3
+    };
+    static final int[] ANCHOR3_THIRD = {
+            15, 8, 8, 3, 15, 15, 3, 8, 15, 15, 15, 15, 15, 15, 15, 8,
+            15, 8, 15, 3, 15, 8, 15, 8, 3, 15, 6, 10, 15, 15, 10, 8,
+            15, 3, 15, 10, 10, 8, 9, 10, 6, 15, 8, 15, 3, 6, 6, 8,
+            15, 3, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15, 3, 15, 15, 8
+    };
+
+    static {
+        for (int p = 0; p < 64; p++) {
+            int packed = 0;
+            for (int i = 0; i < 16; i++) {
+                packed |= (PARTITIONS3_TABLE[p].charAt(i) - '0') << (i << 1);
+            }
+            PARTITIONS3[p] = packed;
+        }
+    }
+
+    /** Состояние декодирования блока; один экземпляр на поток. */
+    static final class State {
+        final int[] endpoints = new int[6 * 4];   // (подмножество * 2 + конец) * 4 + канал (R, G, B, A)
+        final int[] pbits = new int[6];
+        final int[] indices = new int[16];
+        final int[] indices2 = new int[16];
+    }
+
+    private BC7Decoder() {
+    }
+
+    /**
+     * Декодирует блок по смещению {@code p} в {@code out[0..15]} (строки 4x4).
+     */
+    static void decodeBlock(byte[] data, int p, int[] out, State st) {
+        long lo = readLong(data, p), hi = readLong(data, p + 8);
+        int mode = Long.numberOfTrailingZeros(lo | 0x100);
+        if (mode > 7) {
+            Arrays.fill(out, 0, 16, 0);
+            return;
+        }
+        int pos = mode + 1;
+        int partition = bits(lo, hi, pos, PARTITION_BITS[mode]);
+        pos += PARTITION_BITS[mode];
+        int rotation = bits(lo, hi, pos, ROTATION_BITS[mode]);
+        pos += ROTATION_BITS[mode];
+        int indexSelection = bits(lo, hi, pos, INDEX_SELECTION_BITS[mode]);
+        pos += INDEX_SELECTION_BITS[mode];
+
+        int subsets = SUBSETS[mode];
+        int ends = subsets * 2;
+        int colorBits = COLOR_BITS[mode], alphaBits = ALPHA_BITS[mode];
+        int[] ep = st.endpoints;
+        for (int c = 0; c < 3; c++) {
+            for (int e = 0; e < ends; e++) {
+                ep[e * 4 + c] = bits(lo, hi, pos, colorBits);
+                pos += colorBits;
+            }
+        }
+        for (int e = 0; e < ends; e++) {
+            if (alphaBits > 0) {
+                ep[e * 4 + 3] = bits(lo, hi, pos, alphaBits);
+                pos += alphaBits;
+            }
+        }
+
+        int[] pb = st.pbits;
+        boolean hasPBits = ENDPOINT_PBITS[mode] || SHARED_PBITS[mode];
+        if (ENDPOINT_PBITS[mode]) {
+            for (int e = 0; e < ends; e++) {
+                pb[e] = bits(lo, hi, pos++, 1);
+            }
+        } else if (SHARED_PBITS[mode]) {
+            for (int s = 0; s < subsets; s++) {
+                pb[2 * s] = pb[2 * s + 1] = bits(lo, hi, pos++, 1);
+            }
+        }
+
+        for (int e = 0; e < ends; e++) {
+            for (int c = 0; c < 4; c++) {
+                int n = c < 3 ? colorBits : alphaBits;
+                if (n == 0) {
+                    ep[e * 4 + c] = 0xFF;
+                    continue;
+                }
+                int v = ep[e * 4 + c];
+                if (hasPBits) {
+                    v = v << 1 | pb[e];
+                    n++;
+                }
+                v <<= 8 - n;
+                ep[e * 4 + c] = v | v >>> n;
+            }
+        }
+
+        int indexBits = INDEX_BITS[mode], index2Bits = INDEX2_BITS[mode];
+        int[] idx = st.indices, idx2 = st.indices2;
+        for (int i = 0; i < 16; i++) {
+            int n = isAnchor(subsets, partition, i) ? indexBits - 1 : indexBits;
+            idx[i] = bits(lo, hi, pos, n);
+            pos += n;
+        }
+        if (index2Bits > 0) {
+            for (int i = 0; i < 16; i++) {
+                int n = i == 0 ? index2Bits - 1 : index2Bits;
+                idx2[i] = bits(lo, hi, pos, n);
+                pos += n;
+            }
+        }
+
+        int[] colorWeights = weights(indexBits), alphaWeights = colorWeights;
+        int[] colorIdx = idx, alphaIdx = idx;
+        if (index2Bits > 0) {
+            if (indexSelection == 0) {
+                alphaIdx = idx2;
+                alphaWeights = weights(index2Bits);
+            } else {
+                colorIdx = idx2;
+                colorWeights = weights(index2Bits);
+            }
+        }
+
+        for (int i = 0; i < 16; i++) {
+            int e0 = subset(subsets, partition, i) * 8, e1 = e0 + 4;
+            int wc = colorWeights[colorIdx[i]], wa = alphaWeights[alphaIdx[i]];
+            int r = interp(ep[e0], ep[e1], wc);
+            int g = interp(ep[e0 + 1], ep[e1 + 1], wc);
+            int b = interp(ep[e0 + 2], ep[e1 + 2], wc);
+            int a = interp(ep[e0 + 3], ep[e1 + 3], wa);
+            switch (rotation) {
+                case 1 -> { int t = a; a = r; r = t; }
+                case 2 -> { int t = a; a = g; g = t; }
+                case 3 -> { int t = a; a = b; b = t; }
+                default -> { }
+            }
+            out[i] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+
+    static int subset(int subsets, int partition, int i) {
+        return switch (subsets) {
+            case 2 -> (PARTITIONS2[partition] >>> i) & 1;
+            case 3 -> (PARTITIONS3[partition] >>> (i << 1)) & 3;
+            default -> 0;
+        };
+    }
+
+    private static boolean isAnchor(int subsets, int partition, int i) {
+        return i == 0
+                || subsets == 2 && i == ANCHOR2[partition]
+                || subsets == 3 && (i == ANCHOR3_SECOND[partition] || i == ANCHOR3_THIRD[partition]);
+    }
+
+    private static int[] weights(int bits) {
+        return bits == 2 ? WEIGHTS2 : bits == 3 ? WEIGHTS3 : WEIGHTS4;
+    }
+
+    private static int interp(int e0, int e1, int w) {
+        return ((64 - w) * e0 + w * e1 + 32) >> 6;
+    }
+
+    /** {@code n} бит (n &lt;= 8) 128-битного блока, начиная с бита {@code pos}. */
+    private static int bits(long lo, long hi, int pos, int n) {
+        if (n == 0) {
+            return 0;
+        }
+        long v;
+        if (pos >= 64) {
+            v = hi >>> (pos - 64);
+        } else if (pos + n <= 64) {
+            v = lo >>> pos;
+        } else {
+            v = lo >>> pos | hi << (64 - pos);
+        }
+        return (int) v & ((1 << n) - 1);
+    }
+
+    private static long readLong(byte[] data, int p) {
+        long v = 0;
+        for (int i = 7; i >= 0; i--) {
+            v = v << 8 | (data[p + i] & 0xFF);
+        }
+        return v;
+    }
+}
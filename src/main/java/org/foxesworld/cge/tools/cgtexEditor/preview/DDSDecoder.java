@@ -1,26 +1,236 @@
 package org.foxesworld.cge.tools.cgtexEditor.preview;
 
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.BufferUnderflowException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.logging.Logger;
 
+/**
+ * Декодер DXT1/DXT3/DXT5 и BC4/BC5/BC7 в ARGB.
+ * <p>
+ * BC4 (один канал) показывается оттенками серого. BC5 хранит X и Y карты нормалей в R и G;
+ * для превью синий канал восстанавливается как {@code Z = sqrt(1 - X^2 - Y^2)}.
+ * BC7 декодируется {@link BC7Decoder}.
+ * <p>
+ * Блоки читаются прямо из массива и пишутся в {@code int[]} (или в {@link DataBufferInt}
+ * изображения {@code TYPE_INT_ARGB}), без {@code setRGB} и без выделения памяти на блок:
+ * палитры блока живут в переиспользуемом per-thread буфере.
+ * <p>
+ * Блоки независимы и лежат по фиксированным смещениям, поэтому большие текстуры
+ * ({@link #decodeParallel}) декодируются полосами строк блоков на {@link ForkJoinPool}.
+ * <p>
+ * Для превью {@link #decodeThumbnail} сразу строит уменьшенное изображение: один пиксель на блок
+ * (1/4 масштаба), а если и этого много — один блок из каждых N; полное изображение не создаётся.
+ * <p>
+ * DXT-блоки могут декодироваться векторной реализацией на Vector API ({@code src/vector}),
+ * если JVM запущена с {@code --add-modules jdk.incubator.vector} и поддерживает 256-битные
+ * векторы; иначе (или при {@code -Dcgtex.vector=false}) используется скалярный код.
+ */
 public final class DDSDecoder {
     private static final Logger logger = Logger.getLogger(DDSDecoder.class.getName());
 
+    /** Палитры текущего блока; один экземпляр на поток. */
+    private static final class Scratch {
+        final int[] colors = new int[4];
+        final int[] alpha = new int[16];
+        final int[] alphaTable = new int[8];
+        final int[] pixels = new int[16];         // блок BC4/BC5/BC7
+        final int[] green = new int[16];          // второй канал BC5
+        final BC7Decoder.State bc7 = new BC7Decoder.State();
+    }
+
+    /** Синий канал BC5 по (R, G): индекс {@code r << 8 | g}. */
+    private static final byte[] NORMAL_Z = new byte[256 * 256];
+
+    static {
+        for (int r = 0; r < 256; r++) {
+            for (int g = 0; g < 256; g++) {
+                double x = r / 127.5 - 1, y = g / 127.5 - 1;
+                double z = Math.sqrt(Math.max(0, 1 - x * x - y * y));
+                NORMAL_Z[r << 8 | g] = (byte) Math.round(127.5 + 127.5 * z);
+            }
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Декодер строк DXT-блоков {@code [fromRow, toRow)}; альтернативная реализация
+     * подключается через {@link #loadVectorDecoder()}.
+     */
+    interface BlockRowDecoder {
+        void decodeBlockRows(int w, int h, byte fmt, byte[] data, int[] out, int offset, int scanline,
+                             int fromRow, int toRow);
+    }
+
+    private static final String VECTOR_DECODER = "org.foxesworld.cge.tools.cgtexEditor.preview.VectorDXTDecoder";
+
+    /** Векторный декодер или null, если он недоступен. */
+    private static final BlockRowDecoder VECTOR = loadVectorDecoder();
+
+    /** Текстуры меньше этого числа пикселей декодируются последовательно. */
+    public static final int PARALLEL_THRESHOLD_PIXELS = 512 * 512;
+
+    /** Минимальная высота полосы в строках блоков (64 пикселя). */
+    private static final int MIN_BAND_ROWS = 16;
+
+    private DDSDecoder() {
+    }
+
     public static BufferedImage decode(int w, int h, byte fmt, byte[] data) {
         BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        ByteBuffer buf = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
-        switch (fmt) {
-            case 1 -> decodeBlocks(w, h, buf, img, false, false);
-            case 3 -> decodeBlocks(w, h, buf, img, true, false);
-            case 5 -> decodeBlocks(w, h, buf, img, false, true);
-            default -> fillChecker(img);
+        if (isSupported(fmt)) {
+            decodeInto(img, fmt, data);
+        } else {
+            fillChecker(img);
+        }
+        return img;
+    }
+
+    /**
+     * Декодирует текстуру в готовое изображение {@code TYPE_INT_ARGB} (в т.ч. sub-image),
+     * записывая пиксели напрямую в его {@link DataBufferInt}.
+     */
+    public static void decodeInto(BufferedImage img, byte fmt, byte[] data) {
+        if (img.getType() != BufferedImage.TYPE_INT_ARGB) {
+            throw new IllegalArgumentException("Expected TYPE_INT_ARGB image, got type " + img.getType());
+        }
+        WritableRaster raster = img.getRaster();
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBufferInt db = (DataBufferInt) raster.getDataBuffer();
+        int offset = db.getOffset() + sm.getOffset(
+                -raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+        decode(img.getWidth(), img.getHeight(), fmt, data, db.getData(), offset, sm.getScanlineStride());
+    }
+
+    /**
+     * Декодирует текстуру в плотный массив ARGB размером не меньше {@code w * h}.
+     */
+    public static void decode(int w, int h, byte fmt, byte[] data, int[] argb) {
+        decode(w, h, fmt, data, argb, 0, w);
+    }
+
+    /**
+     * Декодирует текстуру в массив ARGB, где пиксель (x, y) лежит по индексу
+     * {@code offset + y * scanline + x}.
+     */
+    public static void decode(int w, int h, byte fmt, byte[] data, int[] argb, int offset, int scanline) {
+        if (!isSupported(fmt)) {
+            throw new IllegalArgumentException("Unsupported texture format: " + fmt);
+        }
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        if (scanline < w || offset < 0 || offset + (long) (h - 1) * scanline + w > argb.length) {
+            throw new IllegalArgumentException("Target array too small for " + w + "x" + h);
+        }
+        if (data.length < TextureEntry.expectedDataLength(w, h, fmt)) {
+            throw new BufferUnderflowException();
+        }
+        decodeBlockRows(w, h, fmt, data, argb, offset, scanline, 0, (h + 3) / 4);
+    }
+
+    /**
+     * То же, что {@link #decode(int, int, byte, byte[])}, но большие текстуры декодируются
+     * параллельно на {@link ForkJoinPool#commonPool()}.
+     */
+    public static BufferedImage decodeParallel(int w, int h, byte fmt, byte[] data) {
+        if (!isSupported(fmt) || (long) w * h < PARALLEL_THRESHOLD_PIXELS) {
+            return decode(w, h, fmt, data);
         }
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        int[] argb = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        decodeParallel(w, h, fmt, data, argb, 0, w, ForkJoinPool.commonPool());
         return img;
     }
 
+    /**
+     * Параллельный вариант {@link #decode(int, int, byte, byte[], int[], int, int)}: сетка блоков
+     * делится на полосы строк, которые выполняются задачами {@code pool}. Ниже
+     * {@link #PARALLEL_THRESHOLD_PIXELS} декодирует в вызывающем потоке.
+     */
+    public static void decodeParallel(int w, int h, byte fmt, byte[] data, int[] argb, int offset, int scanline,
+                                      ForkJoinPool pool) {
+        if ((long) w * h < PARALLEL_THRESHOLD_PIXELS || pool.getParallelism() < 2) {
+            decode(w, h, fmt, data, argb, offset, scanline);
+            return;
+        }
+        if (!isSupported(fmt)) {
+            throw new IllegalArgumentException("Unsupported texture format: " + fmt);
+        }
+        if (scanline < w || offset < 0 || offset + (long) (h - 1) * scanline + w > argb.length) {
+            throw new IllegalArgumentException("Target array too small for " + w + "x" + h);
+        }
+        if (data.length < TextureEntry.expectedDataLength(w, h, fmt)) {
+            throw new BufferUnderflowException();
+        }
+        int blockRows = (h + 3) / 4;
+        int bandRows = Math.max(MIN_BAND_ROWS, blockRows / (pool.getParallelism() * 4));
+        pool.invoke(new BandTask(w, h, fmt, data, argb, offset, scanline, 0, blockRows, bandRows));
+    }
+
+    /**
+     * Декодирует уменьшенную копию текстуры, не больше {@code maxSize} по каждой стороне
+     * (если текстура сама помещается в {@code maxSize}, декодируется как есть).
+     * Каждый пиксель — среднее по 16 текселям блока с учётом альфы; при большом
+     * уменьшении берётся только каждый N-й блок по каждой оси.
+     */
+    public static BufferedImage decodeThumbnail(int w, int h, byte fmt, byte[] data, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (w <= maxSize && h <= maxSize) {
+            return decode(w, h, fmt, data);
+        }
+        int bw = (w + 3) / 4, bh = (h + 3) / 4;
+        int step = Math.max(1, Math.max((bw + maxSize - 1) / maxSize, (bh + maxSize - 1) / maxSize));
+        int tw = (bw + step - 1) / step, th = (bh + step - 1) / step;
+
+        BufferedImage img = new BufferedImage(tw, th, BufferedImage.TYPE_INT_ARGB);
+        if (!isSupported(fmt)) {
+            fillChecker(img);
+            return img;
+        }
+        if (data.length < TextureEntry.expectedDataLength(w, h, fmt)) {
+            throw new BufferUnderflowException();
+        }
+        int[] out = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        Scratch scratch = SCRATCH.get();
+        int blockSize = TextureEntry.blockSize(fmt);
+        for (int ty = 0; ty < th; ty++) {
+            int by = ty * step;
+            int rows = Math.min(4, h - by * 4);
+            for (int tx = 0; tx < tw; tx++) {
+                int bx = tx * step;
+                int cols = Math.min(4, w - bx * 4);
+                out[ty * tw + tx] = averageBlock(data, (by * bw + bx) * blockSize, fmt, cols, rows, scratch);
+            }
+        }
+        return img;
+    }
+
+    /**
+     * @return true, если DXT-блоки декодируются реализацией на Vector API
+     */
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    public static boolean isSupported(byte fmt) {
+        return switch (fmt) {
+            case TextureEntry.FORMAT_DXT1, TextureEntry.FORMAT_DXT3, TextureEntry.FORMAT_DXT5,
+                 TextureEntry.FORMAT_BC4, TextureEntry.FORMAT_BC5, TextureEntry.FORMAT_BC7 -> true;
+            default -> false;
+        };
+    }
+
     private static void fillChecker(BufferedImage img) {
         int w = img.getWidth(), h = img.getHeight(), gs = 20;
         Graphics2D g = img.createGraphics();
@@ -36,30 +246,211 @@ public final class DDSDecoder {
         g.dispose();
     }
 
-    private static void decodeBlocks(int w, int h, ByteBuffer buf, BufferedImage img,
-                                     boolean hasExplicitAlpha, boolean hasSmoothAlpha) {
-        int bw = (w + 3) / 4, bh = (h + 3) / 4;
-        for (int by = 0; by < bh; by++) {
+    /**
+     * Декодирует строки блоков {@code [fromRow, toRow)}.
+     */
+    private static void decodeBlockRows(int w, int h, byte fmt, byte[] data, int[] out, int offset, int scanline,
+                                        int fromRow, int toRow) {
+        if (VECTOR != null && isDXT(fmt)) {
+            VECTOR.decodeBlockRows(w, h, fmt, data, out, offset, scanline, fromRow, toRow);
+            return;
+        }
+        Scratch scratch = SCRATCH.get();
+        int[] colors = scratch.colors;
+        int[] alpha = scratch.alpha;
+        int[] alphaTable = scratch.alphaTable;
+        boolean hasAlpha = fmt != TextureEntry.FORMAT_DXT1;
+        boolean dxt = isDXT(fmt);
+        int blockSize = TextureEntry.blockSize(fmt);
+
+        int bw = (w + 3) / 4;
+        int p = fromRow * bw * blockSize;
+        for (int by = fromRow; by < toRow; by++) {
+            int y0 = by * 4;
+            int rows = Math.min(4, h - y0);
             for (int bx = 0; bx < bw; bx++) {
-                int[] alpha = decodeAlpha(buf, hasExplicitAlpha, hasSmoothAlpha);
-                int[] cols = decodeColors(buf);
-                int bits = buf.getInt();
-                for (int i = 0; i < 16; i++) {
-                    int ci = bits & 3; bits >>>= 2;
-                    int x = bx * 4 + (i & 3), y = by * 4 + (i >>> 2);
-                    if (x < w && y < h) {
-                        int a = alpha != null ? alpha[i] & 0xFF : 0xFF;
-                        int rgb = cols[ci] & 0x00FFFFFF;
-                        img.setRGB(x, y, (a << 24) | rgb);
+                if (!dxt) {
+                    decodeBCBlock(data, p, fmt, scratch);
+                    p += blockSize;
+                    int x0 = bx * 4;
+                    int cols = Math.min(4, w - x0);
+                    for (int py = 0; py < rows; py++) {
+                        System.arraycopy(scratch.pixels, py << 2, out, offset + (y0 + py) * scanline + x0, cols);
+                    }
+                    continue;
+                }
+                if (fmt == TextureEntry.FORMAT_DXT3) {
+                    decodeExplicitAlpha(data, p, alpha);
+                    p += 8;
+                } else if (fmt == TextureEntry.FORMAT_DXT5) {
+                    decodeSmoothAlpha(data, p, alphaTable, alpha);
+                    p += 8;
+                }
+                decodeColors(data, p, colors);
+                int bits = readInt(data, p + 4);
+                p += 8;
+
+                int x0 = bx * 4;
+                int cols = Math.min(4, w - x0);
+                for (int py = 0; py < rows; py++) {
+                    int row = offset + (y0 + py) * scanline + x0;
+                    for (int px = 0; px < cols; px++) {
+                        int i = (py << 2) | px;
+                        int c = colors[(bits >>> (i << 1)) & 3];
+                        // у DXT1 альфа берётся из палитры: индекс 3 в 3-цветном блоке прозрачен
+                        out[row + px] = hasAlpha ? (alpha[i] << 24) | (c & 0x00FFFFFF) : c;
                     }
                 }
             }
         }
     }
 
-    private static int[] decodeColors(ByteBuffer buf) {
-        int c0 = buf.getShort() & 0xFFFF, c1 = buf.getShort() & 0xFFFF;
-        int[] cols = new int[4];
+    /**
+     * Полоса строк блоков; делится пополам, пока не станет не выше {@code bandRows}.
+     */
+    private static final class BandTask extends RecursiveAction {
+        private final int w, h;
+        private final byte fmt;
+        private final byte[] data;
+        private final int[] out;
+        private final int offset, scanline;
+        private final int fromRow, toRow, bandRows;
+
+        BandTask(int w, int h, byte fmt, byte[] data, int[] out, int offset, int scanline,
+                 int fromRow, int toRow, int bandRows) {
+            this.w = w;
+            this.h = h;
+            this.fmt = fmt;
+            this.data = data;
+            this.out = out;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandRows) {
+                decodeBlockRows(w, h, fmt, data, out, offset, scanline, fromRow, toRow);
+                return;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            invokeAll(new BandTask(w, h, fmt, data, out, offset, scanline, fromRow, mid, bandRows),
+                      new BandTask(w, h, fmt, data, out, offset, scanline, mid, toRow, bandRows));
+        }
+    }
+
+    /**
+     * Средний цвет видимых ({@code cols x rows}) текселей блока; цвет взвешен по альфе,
+     * чтобы прозрачные тексели не затемняли результат.
+     */
+    private static int averageBlock(byte[] data, int p, byte fmt, int cols, int rows, Scratch scratch) {
+        if (!isDXT(fmt)) {
+            decodeBCBlock(data, p, fmt, scratch);
+            int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+            for (int py = 0; py < rows; py++) {
+                for (int px = 0; px < cols; px++) {
+                    int c = scratch.pixels[(py << 2) | px];
+                    int a = c >>> 24;
+                    aSum += a;
+                    rSum += ((c >>> 16) & 0xFF) * a;
+                    gSum += ((c >>> 8) & 0xFF) * a;
+                    bSum += (c & 0xFF) * a;
+                }
+            }
+            return aSum == 0 ? 0
+                    : (aSum / (rows * cols)) << 24 | (rSum / aSum) << 16 | (gSum / aSum) << 8 | (bSum / aSum);
+        }
+        int[] colors = scratch.colors;
+        int[] alpha = scratch.alpha;
+        boolean hasAlpha = fmt != TextureEntry.FORMAT_DXT1;
+        if (fmt == TextureEntry.FORMAT_DXT3) {
+            decodeExplicitAlpha(data, p, alpha);
+            p += 8;
+        } else if (fmt == TextureEntry.FORMAT_DXT5) {
+            decodeSmoothAlpha(data, p, scratch.alphaTable, alpha);
+            p += 8;
+        }
+        decodeColors(data, p, colors);
+        int bits = readInt(data, p + 4);
+
+        int aSum = 0, rSum = 0, gSum = 0, bSum = 0;
+        for (int py = 0; py < rows; py++) {
+            for (int px = 0; px < cols; px++) {
+                int i = (py << 2) | px;
+                int c = colors[(bits >>> (i << 1)) & 3];
+                int a = hasAlpha ? alpha[i] : c >>> 24;
+                aSum += a;
+                rSum += ((c >>> 16) & 0xFF) * a;
+                gSum += ((c >>> 8) & 0xFF) * a;
+                bSum += (c & 0xFF) * a;
+            }
+        }
+        if (aSum == 0) {
+            return 0;
+        }
+        int n = rows * cols;
+        return (aSum / n) << 24 | (rSum / aSum) << 16 | (gSum / aSum) << 8 | (bSum / aSum);
+    }
+
+    /**
+     * Загружает {@code VectorDXTDecoder} рефлексией: класс компилируется отдельно с модулем
+     * {@code jdk.incubator.vector}, и без этого модуля его загрузка падает с {@link LinkageError}.
+     */
+    private static BlockRowDecoder loadVectorDecoder() {
+        if (!Boolean.parseBoolean(System.getProperty("cgtex.vector", "true"))) {
+            return null;
+        }
+        try {
+            BlockRowDecoder decoder = (BlockRowDecoder) Class.forName(VECTOR_DECODER)
+                    .getDeclaredConstructor().newInstance();
+            logger.fine("Using Vector API DXT decoder");
+            return decoder;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            logger.fine("Vector API DXT decoder unavailable, using scalar decoder: " + e);
+            return null;
+        }
+    }
+
+    private static boolean isDXT(byte fmt) {
+        return fmt == TextureEntry.FORMAT_DXT1 || fmt == TextureEntry.FORMAT_DXT3 || fmt == TextureEntry.FORMAT_DXT5;
+    }
+
+    /**
+     * Декодирует блок BC4/BC5/BC7 в {@code scratch.pixels}.
+     */
+    private static void decodeBCBlock(byte[] data, int p, byte fmt, Scratch scratch) {
+        int[] px = scratch.pixels;
+        switch (fmt) {
+            case TextureEntry.FORMAT_BC4 -> {
+                decodeSmoothAlpha(data, p, scratch.alphaTable, px);
+                for (int i = 0; i < 16; i++) {
+                    int v = px[i];
+                    px[i] = 0xFF000000 | v << 16 | v << 8 | v;
+                }
+            }
+            case TextureEntry.FORMAT_BC5 -> {
+                int[] green = scratch.green;
+                decodeSmoothAlpha(data, p, scratch.alphaTable, px);
+                decodeSmoothAlpha(data, p + 8, scratch.alphaTable, green);
+                for (int i = 0; i < 16; i++) {
+                    int r = px[i], g = green[i];
+                    px[i] = 0xFF000000 | r << 16 | g << 8 | (NORMAL_Z[r << 8 | g] & 0xFF);
+                }
+            }
+            default -> BC7Decoder.decodeBlock(data, p, px, scratch.bc7);
+        }
+    }
+
+    /**
+     * Палитра цветового блока DXT в формате ARGB. В 3-цветном режиме ({@code c0 <= c1})
+     * цвет 3 - прозрачный чёрный (punch-through альфа DXT1); DXT3/DXT5 берут альфу
+     * из своего блока и используют только RGB палитры.
+     */
+    static void decodeColors(byte[] data, int p, int[] cols) {
+        int c0 = readShort(data, p), c1 = readShort(data, p + 2);
         cols[0] = rgb565(c0);
         cols[1] = rgb565(c1);
         if (c0 > c1) {
@@ -69,54 +460,62 @@ public final class DDSDecoder {
             cols[2] = interp(cols[0], cols[1], 1, 1);
             cols[3] = 0;
         }
-        return cols;
     }
 
-    private static int[] decodeAlpha(ByteBuffer buf, boolean explicit, boolean smooth) {
-        if (!explicit && !smooth) return null;
-        if (explicit) {
-            int[] alpha = new int[16];
-            int a1 = buf.getShort() & 0xFFFF;
-            int a2 = buf.getShort() & 0xFFFF;
-            for (int i = 0; i < 8; i++) {
-                int v = (i < 4 ? (a1 >> (i * 4)) : (a2 >> ((i - 4) * 4))) & 0xF;
-                alpha[i] = (v << 4) | (v & 0xF);
-            }
-            return expandAlpha(alpha);
-        } else {
-            int a0 = buf.get() & 0xFF, a1 = buf.get() & 0xFF;
-            long bits = 0;
-            for (int i = 0; i < 6; i++) bits |= (long)(buf.get() & 0xFF) << (8 * i);
-            int[] alpha = new int[8];
-            alpha[0] = a0; alpha[1] = a1;
-            if (a0 > a1) for (int i = 2; i < 8; i++) alpha[i] = ((8 - i) * a0 + (i - 1) * a1) / 7;
-            else {
-                for (int i = 2; i < 6; i++) alpha[i] = ((6 - i) * a0 + (i - 1) * a1) / 5;
-                alpha[6] = 0; alpha[7] = 0xFF;
-            }
-            int[] out = new int[16];
-            for (int i = 0; i < 16; i++) out[i] = alpha[(int)((bits >> (i * 3)) & 7)];
-            return out;
+    /**
+     * DXT3: 16 четырёхбитных значений альфы, по одному на пиксель.
+     */
+    private static void decodeExplicitAlpha(byte[] data, int p, int[] alpha) {
+        long bits = readLong(data, p);
+        for (int i = 0; i < 16; i++) {
+            int v = (int) (bits >>> (i * 4)) & 0xF;
+            alpha[i] = (v << 4) | v;
         }
     }
 
-    private static int[] expandAlpha(int[] a4) {
-        int[] a16 = new int[16];
-        for (int i = 0; i < 4; i++) {
-            int v = a4[i];
-            for (int j = 0; j < 4; j++) a16[i * 4 + j] = v;
+    /**
+     * DXT5: два опорных значения и 3-битные индексы в интерполированную таблицу.
+     */
+    private static void decodeSmoothAlpha(byte[] data, int p, int[] table, int[] alpha) {
+        int a0 = data[p] & 0xFF, a1 = data[p + 1] & 0xFF;
+        long bits = 0;
+        for (int i = 0; i < 6; i++) bits |= (long) (data[p + 2 + i] & 0xFF) << (8 * i);
+        smoothAlphaTable(a0, a1, table);
+        for (int i = 0; i < 16; i++) alpha[i] = table[(int) ((bits >> (i * 3)) & 7)];
+    }
+
+    /**
+     * Таблица альфы DXT5: 8 значений при {@code a0 > a1}, иначе 6 значений плюс 0 и 255.
+     */
+    static void smoothAlphaTable(int a0, int a1, int[] table) {
+        table[0] = a0; table[1] = a1;
+        if (a0 > a1) for (int i = 2; i < 8; i++) table[i] = ((8 - i) * a0 + (i - 1) * a1) / 7;
+        else {
+            for (int i = 2; i < 6; i++) table[i] = ((6 - i) * a0 + (i - 1) * a1) / 5;
+            table[6] = 0; table[7] = 0xFF;
         }
-        return a16;
     }
 
-    private static int rgb565(int v) {
+    private static int readShort(byte[] data, int p) {
+        return (data[p] & 0xFF) | (data[p + 1] & 0xFF) << 8;
+    }
+
+    static int readInt(byte[] data, int p) {
+        return (data[p] & 0xFF) | (data[p + 1] & 0xFF) << 8 | (data[p + 2] & 0xFF) << 16 | (data[p + 3] & 0xFF) << 24;
+    }
+
+    static long readLong(byte[] data, int p) {
+        return (readInt(data, p) & 0xFFFFFFFFL) | (long) readInt(data, p + 4) << 32;
+    }
+
+    static int rgb565(int v) {
         int r = ((v >>> 11) & 0x1F) << 3;
         int g = ((v >>> 5) & 0x3F) << 2;
         int b = (v & 0x1F) << 3;
         return 0xFF000000 | (r << 16) | (g << 8) | b;
     }
 
-    private static int interp(int c0, int c1, int w0, int w1) {
+    static int interp(int c0, int c1, int w0, int w1) {
         int a0 = (c0 >>> 24) & 0xFF, r0 = (c0 >>> 16) & 0xFF, g0 = (c0 >>> 8) & 0xFF, b0 = c0 & 0xFF;
         int a1 = (c1 >>> 24) & 0xFF, r1 = (c1 >>> 16) & 0xFF, g1 = (c1 >>> 8) & 0xFF, b1 = c1 & 0xFF;
         int w = w0 + w1;
@@ -125,4 +524,4 @@ public final class DDSDecoder {
                 ((w0 * g0 + w1 * g1) / w) << 8  |
                 ((w0 * b0 + w1 * b1) / w);
     }
-}
\ No newline at end of file
+}
@@ -1,34 +1,63 @@
 package org.foxesworld.cge.tools.cgtexEditor.preview;
 
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
 import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
+import org.foxesworld.cge.tools.cgtexEditor.utils.UIUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 
 /**
  * DDSParser provides functionality to parse a DDS file from a byte array
  * and extract its width, height, format code, and compressed data into a TextureInfo.
+ * <p>
+ * Supported are the legacy FourCCs {@code DXT1/DXT3/DXT5}, {@code ATI1/BC4U} and
+ * {@code ATI2/BC5U}, and the {@code DX10} extended header with the unsigned BC1-BC5
+ * and BC7 DXGI formats.
  */
 public class DDSParser {
 
     private static final int DDS_HEADER_SIZE = 128;
     private static final int SIGNATURE_LENGTH = 4;
+    private static final int FLAGS_OFFSET = 8;
     private static final int HEIGHT_OFFSET = 12;
     private static final int WIDTH_OFFSET = 16;
+    private static final int MIPMAP_COUNT_OFFSET = 28;
+    private static final int DDSD_MIPMAPCOUNT = 0x20000;
     private static final int FORMAT_CODE_OFFSET = 84;
     private static final int NAME_OFFSET = 88;
     private static final int FORMAT_CODE_LENGTH = 4;
     private static final int NAME_LENGTH = 8;
+    private static final int DX10_HEADER_SIZE = 20;
+
+    // DXGI_FORMAT values of the DX10 header
+    private static final int DXGI_BC1_UNORM = 71;
+    private static final int DXGI_BC1_UNORM_SRGB = 72;
+    private static final int DXGI_BC2_UNORM = 74;
+    private static final int DXGI_BC2_UNORM_SRGB = 75;
+    private static final int DXGI_BC3_UNORM = 77;
+    private static final int DXGI_BC3_UNORM_SRGB = 78;
+    private static final int DXGI_BC4_UNORM = 80;
+    private static final int DXGI_BC5_UNORM = 83;
+    private static final int DXGI_BC7_UNORM = 98;
+    private static final int DXGI_BC7_UNORM_SRGB = 99;
 
     /**
      * Parses the given byte array as a DDS file and returns a TextureInfo instance.
      * The method verifies the DDS signature, reads width and height, determines the
-     * DXT format (1, 3, or 5), extracts the texture name (up to 8 characters), and
-     * copies the remaining compressed data bytes.
+     * block format (DXT1/3/5, BC4, BC5 or BC7, from the FourCC or the DX10 header),
+     * extracts the texture name (up to 8 characters), and copies the remaining
+     * compressed data bytes.
+     * <p>
+     * If the header declares a mip chain ({@code dwMipMapCount}), the data holds exactly
+     * the levels present in the file, largest first; levels cut off by a truncated file
+     * are dropped. Single levels are then available through {@link TextureInfo#getMipLevel(int)}.
      *
      * @param fileBytes a byte array containing the full contents of a DDS file
      * @return a TextureInfo object populated with texture metadata and data
@@ -52,17 +81,28 @@ public class DDSParser {
         int height = headerBuffer.getInt(HEIGHT_OFFSET);
         int width = headerBuffer.getInt(WIDTH_OFFSET);
 
-        // Read the four-character format code (e.g., "DXT1", "DXT3", "DXT5")
+        // Read the four-character format code (e.g., "DXT1", "DXT5", "DX10")
         String formatCode = new String(
                 fileBytes, FORMAT_CODE_OFFSET, FORMAT_CODE_LENGTH, StandardCharsets.UTF_8
         );
 
-        // Determine numeric format identifier
+        // Determine numeric format identifier; DX10 files carry a DXGI format after the header
+        int dataOffset = DDS_HEADER_SIZE;
         byte formatId;
         switch (formatCode) {
-            case "DXT1" -> formatId = 1;
-            case "DXT3" -> formatId = 3;
-            case "DXT5" -> formatId = 5;
+            case "DXT1" -> formatId = TextureEntry.FORMAT_DXT1;
+            case "DXT3" -> formatId = TextureEntry.FORMAT_DXT3;
+            case "DXT5" -> formatId = TextureEntry.FORMAT_DXT5;
+            case "ATI1", "BC4U" -> formatId = TextureEntry.FORMAT_BC4;
+            case "ATI2", "BC5U" -> formatId = TextureEntry.FORMAT_BC5;
+            case "DX10" -> {
+                if (fileBytes.length < DDS_HEADER_SIZE + DX10_HEADER_SIZE) {
+                    throw new IOException("Invalid DDS data: truncated DX10 header");
+                }
+                int dxgiFormat = ByteBuffer.wrap(fileBytes).order(ByteOrder.LITTLE_ENDIAN).getInt(DDS_HEADER_SIZE);
+                formatId = fromDxgiFormat(dxgiFormat);
+                dataOffset += DX10_HEADER_SIZE;
+            }
             default -> throw new IOException("Unsupported DDS format: " + formatCode);
         }
 
@@ -71,8 +111,23 @@ public class DDSParser {
                 fileBytes, NAME_OFFSET, NAME_LENGTH, StandardCharsets.UTF_8
         ).trim();
 
-        // Extract compressed texture data starting immediately after the 128-byte header
-        byte[] data = Arrays.copyOfRange(fileBytes, DDS_HEADER_SIZE, fileBytes.length);
+        // Mip chain: dwMipMapCount is valid when DDSD_MIPMAPCOUNT is set
+        int flags = headerBuffer.getInt(FLAGS_OFFSET);
+        int mipCount = 1;
+        if ((flags & DDSD_MIPMAPCOUNT) != 0) {
+            int available = fileBytes.length - dataOffset;
+            mipCount = Math.min(Math.max(1, headerBuffer.getInt(MIPMAP_COUNT_OFFSET)),
+                    TextureEntry.maxMipCount(width, height));
+            while (mipCount > 1 && TextureEntry.mipChainLength(width, height, formatId, mipCount) > available) {
+                mipCount--;
+            }
+        }
+
+        // Extract compressed texture data starting immediately after the header(s)
+        int dataEnd = mipCount > 1
+                ? dataOffset + (int) TextureEntry.mipChainLength(width, height, formatId, mipCount)
+                : fileBytes.length;
+        byte[] data = Arrays.copyOfRange(fileBytes, dataOffset, dataEnd);
 
         return new TextureInfo(
                 new File(textureName),
@@ -80,7 +135,51 @@ public class DDSParser {
                 height,
                 textureName,
                 formatId,
-                data
+                data,
+                mipCount
         );
     }
+
+    /**
+     * Maps a DXGI_FORMAT of the DX10 header to a format code. sRGB variants map to the
+     * same code as their UNORM counterparts; signed and other formats are rejected.
+     *
+     * @throws IOException if the format is not supported
+     */
+    private static byte fromDxgiFormat(int dxgiFormat) throws IOException {
+        return switch (dxgiFormat) {
+            case DXGI_BC1_UNORM, DXGI_BC1_UNORM_SRGB -> TextureEntry.FORMAT_DXT1;
+            case DXGI_BC2_UNORM, DXGI_BC2_UNORM_SRGB -> TextureEntry.FORMAT_DXT3;
+            case DXGI_BC3_UNORM, DXGI_BC3_UNORM_SRGB -> TextureEntry.FORMAT_DXT5;
+            case DXGI_BC4_UNORM -> TextureEntry.FORMAT_BC4;
+            case DXGI_BC5_UNORM -> TextureEntry.FORMAT_BC5;
+            case DXGI_BC7_UNORM, DXGI_BC7_UNORM_SRGB -> TextureEntry.FORMAT_BC7;
+            default -> throw new IOException("Unsupported DXGI format: " + dxgiFormat);
+        };
+    }
+
+    /**
+     * Reads and parses a DDS file. The texture is named after the file without its extension.
+     * Safe to call from multiple threads.
+     *
+     * @param path the DDS file
+     * @return a TextureInfo holding the compressed data without the DDS header
+     * @throws IOException if the file cannot be read or is not a supported DDS file
+     */
+    public static TextureInfo readTexture(Path path) throws IOException {
+        TextureInfo ti = parseBytes(Files.readAllBytes(path));
+        ti.setName(UIUtils.stripExtension(path.getFileName().toString()));
+        return ti;
+    }
+
+    /**
+     * Reads a DDS file as a TextureEntry ready to be packed into a CGTEX file.
+     *
+     * @param path the DDS file
+     * @return a TextureEntry named after the file
+     * @throws IOException if the file cannot be read or is not a supported DDS file
+     */
+    public static TextureEntry readEntry(Path path) throws IOException {
+        return readTexture(path).toEntry();
+    }
 }
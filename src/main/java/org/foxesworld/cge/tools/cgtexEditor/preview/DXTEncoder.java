@@ -0,0 +1,493 @@
+package org.foxesworld.cge.tools.cgtexEditor.preview;
+
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Кодировщик ARGB в DXT1/DXT3/DXT5 (BC1/BC2/BC3) - обратная операция к {@link DDSDecoder}.
+ * <p>
+ * {@link Quality#FAST} берёт концы отрезка цветов из ограничивающего параллелепипеда блока
+ * (с небольшим отступом внутрь). {@link Quality#HIGH} дополнительно строит главную ось
+ * цветов блока (PCA), уточняет концы методом наименьших квадратов по выбранным индексам
+ * (cluster fit) и оставляет лучший из вариантов; для DXT5 пробуется и 6-точечный режим альфы.
+ * Палитра считается теми же формулами, что и в {@link DDSDecoder}, поэтому ошибка
+ * оценивается по тому, что реально будет показано.
+ * <p>
+ * DXT1 с прозрачными пикселями (альфа &lt; 128) кодируется в 3-цветном режиме с индексом
+ * прозрачности. Большие изображения кодируются полосами строк блоков на {@link ForkJoinPool}.
+ */
+public final class DXTEncoder {
+
+    public enum Quality {
+        /** Концы по ограничивающему параллелепипеду. */
+        FAST,
+        /** PCA + уточнение наименьшими квадратами. */
+        HIGH
+    }
+
+    /** Изображения меньше этого числа пикселей кодируются последовательно. */
+    public static final int PARALLEL_THRESHOLD_PIXELS = 256 * 256;
+
+    /** Минимальная высота полосы в строках блоков. */
+    private static final int MIN_BAND_ROWS = 8;
+    private static final int REFINE_ITERATIONS = 3;
+
+    /** Веса концов c0/c1 для индексов в 4- и 3-цветном режимах (в третях и половинах). */
+    private static final double[] W0_FOUR = {1.0, 0.0, 2.0 / 3.0, 1.0 / 3.0};
+    private static final double[] W1_FOUR = {0.0, 1.0, 1.0 / 3.0, 2.0 / 3.0};
+    private static final double[] W0_THREE = {1.0, 0.0, 0.5};
+    private static final double[] W1_THREE = {0.0, 1.0, 0.5};
+
+    /** Состояние текущего блока; один экземпляр на поток. */
+    private static final class Scratch {
+        final int[] r = new int[16], g = new int[16], b = new int[16], a = new int[16];
+        final int[] sel = new int[16];          // пиксели, участвующие в подборе цвета
+        final int[] idx = new int[16], bestIdx = new int[16];
+        final int[] palette = new int[4];
+        final int[] ends = new int[2];          // концы в RGB565
+        final int[] alphaTable = new int[8];
+        final int[] alphaIdx = new int[16], alphaIdx2 = new int[16];
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private DXTEncoder() {
+    }
+
+    /**
+     * Кодирует изображение на {@link ForkJoinPool#commonPool()}.
+     */
+    public static byte[] encode(BufferedImage img, byte fmt, Quality quality) {
+        int w = img.getWidth(), h = img.getHeight();
+        if (img.getType() == BufferedImage.TYPE_INT_ARGB) {
+            WritableRaster raster = img.getRaster();
+            SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            DataBufferInt db = (DataBufferInt) raster.getDataBuffer();
+            int offset = db.getOffset() + sm.getOffset(
+                    -raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+            return encode(w, h, db.getData(), offset, sm.getScanlineStride(), fmt, quality, ForkJoinPool.commonPool());
+        }
+        return encode(w, h, img.getRGB(0, 0, w, h, null, 0, w), fmt, quality);
+    }
+
+    /**
+     * Кодирует плотный массив ARGB ({@code w * h}) на {@link ForkJoinPool#commonPool()}.
+     */
+    public static byte[] encode(int w, int h, int[] argb, byte fmt, Quality quality) {
+        return encode(w, h, argb, 0, w, fmt, quality, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Кодирует массив ARGB, где пиксель (x, y) лежит по индексу {@code offset + y * scanline + x}.
+     * Ниже {@link #PARALLEL_THRESHOLD_PIXELS} кодирует в вызывающем потоке.
+     *
+     * @return данные DXT длиной {@link TextureEntry#expectedDataLength(int, int, byte)}
+     */
+    public static byte[] encode(int w, int h, int[] argb, int offset, int scanline, byte fmt, Quality quality,
+                                ForkJoinPool pool) {
+        if (!isSupported(fmt)) {
+            throw new IllegalArgumentException("Unsupported DXT format: " + fmt);
+        }
+        if (w <= 0 || h <= 0) {
+            throw new IllegalArgumentException("Invalid image size: " + w + "x" + h);
+        }
+        if (scanline < w || offset < 0 || offset + (long) (h - 1) * scanline + w > argb.length) {
+            throw new IllegalArgumentException("Source array too small for " + w + "x" + h);
+        }
+        byte[] out = new byte[(int) TextureEntry.expectedDataLength(w, h, fmt)];
+        int blockRows = (h + 3) / 4;
+        if ((long) w * h < PARALLEL_THRESHOLD_PIXELS || pool.getParallelism() < 2) {
+            encodeBlockRows(w, h, argb, offset, scanline, fmt, quality, out, 0, blockRows);
+        } else {
+            int bandRows = Math.max(MIN_BAND_ROWS, blockRows / (pool.getParallelism() * 4));
+            pool.invoke(new BandTask(w, h, argb, offset, scanline, fmt, quality, out, 0, blockRows, bandRows));
+        }
+        return out;
+    }
+
+    /**
+     * @return true для DXT1, DXT3 и DXT5 - форматов, в которые умеет кодировать этот класс
+     */
+    public static boolean isSupported(byte fmt) {
+        return fmt == TextureEntry.FORMAT_DXT1 || fmt == TextureEntry.FORMAT_DXT3 || fmt == TextureEntry.FORMAT_DXT5;
+    }
+
+    /**
+     * Полоса строк блоков; делится пополам, пока не станет не выше {@code bandRows}.
+     */
+    private static final class BandTask extends RecursiveAction {
+        private final int w, h;
+        private final int[] argb;
+        private final int offset, scanline;
+        private final byte fmt;
+        private final Quality quality;
+        private final byte[] out;
+        private final int fromRow, toRow, bandRows;
+
+        BandTask(int w, int h, int[] argb, int offset, int scanline, byte fmt, Quality quality, byte[] out,
+                 int fromRow, int toRow, int bandRows) {
+            this.w = w;
+            this.h = h;
+            this.argb = argb;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.fmt = fmt;
+            this.quality = quality;
+            this.out = out;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandRows) {
+                encodeBlockRows(w, h, argb, offset, scanline, fmt, quality, out, fromRow, toRow);
+                return;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            invokeAll(new BandTask(w, h, argb, offset, scanline, fmt, quality, out, fromRow, mid, bandRows),
+                      new BandTask(w, h, argb, offset, scanline, fmt, quality, out, mid, toRow, bandRows));
+        }
+    }
+
+    private static void encodeBlockRows(int w, int h, int[] argb, int offset, int scanline, byte fmt,
+                                        Quality quality, byte[] out, int fromRow, int toRow) {
+        Scratch s = SCRATCH.get();
+        int bw = (w + 3) / 4;
+        int p = fromRow * bw * TextureEntry.blockSize(fmt);
+        for (int by = fromRow; by < toRow; by++) {
+            for (int bx = 0; bx < bw; bx++) {
+                loadBlock(argb, offset, scanline, w, h, bx * 4, by * 4, s);
+                if (fmt == TextureEntry.FORMAT_DXT3) {
+                    encodeExplicitAlpha(s, out, p);
+                    p += 8;
+                } else if (fmt == TextureEntry.FORMAT_DXT5) {
+                    encodeSmoothAlpha(s, out, p, quality);
+                    p += 8;
+                }
+                encodeColor(s, out, p, fmt == TextureEntry.FORMAT_DXT1, quality);
+                p += 8;
+            }
+        }
+    }
+
+    /**
+     * Читает блок 4x4; за краем изображения повторяются крайние пиксели.
+     */
+    private static void loadBlock(int[] argb, int offset, int scanline, int w, int h, int x0, int y0, Scratch s) {
+        for (int py = 0; py < 4; py++) {
+            int row = offset + Math.min(y0 + py, h - 1) * scanline;
+            for (int px = 0; px < 4; px++) {
+                int c = argb[row + Math.min(x0 + px, w - 1)];
+                int i = (py << 2) | px;
+                s.a[i] = c >>> 24;
+                s.r[i] = (c >>> 16) & 0xFF;
+                s.g[i] = (c >>> 8) & 0xFF;
+                s.b[i] = c & 0xFF;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- цвет
+
+    private static void encodeColor(Scratch s, byte[] out, int p, boolean punchThrough, Quality quality) {
+        int n = 0;
+        for (int i = 0; i < 16; i++) {
+            if (!punchThrough || s.a[i] >= 128) {
+                s.sel[n++] = i;
+            }
+        }
+        boolean fourColor = n == 16;
+        if (n == 0) {
+            // Полностью прозрачный блок: 3-цветный режим, все индексы - прозрачность
+            writeColor(out, p, 0, 0, 0xFFFFFFFF);
+            return;
+        }
+
+        int[] ends = s.ends;
+        boundingBox(s, n, ends);
+        long err = assignIndices(s, n, ends[0], ends[1], fourColor);
+        if (quality == Quality.HIGH && err > 0) {
+            int best0 = ends[0], best1 = ends[1];
+            long bestErr = err;
+            System.arraycopy(s.idx, 0, s.bestIdx, 0, 16);
+
+            principalAxis(s, n, ends);
+            for (int iter = 0; iter < REFINE_ITERATIONS; iter++) {
+                long e = assignIndices(s, n, ends[0], ends[1], fourColor);
+                if (e < bestErr) {
+                    bestErr = e;
+                    best0 = ends[0];
+                    best1 = ends[1];
+                    System.arraycopy(s.idx, 0, s.bestIdx, 0, 16);
+                } else if (iter > 0) {
+                    break;
+                }
+                if (bestErr == 0 || !leastSquares(s, n, fourColor, ends)) {
+                    break;
+                }
+            }
+            ends[0] = best0;
+            ends[1] = best1;
+            System.arraycopy(s.bestIdx, 0, s.idx, 0, 16);
+        }
+
+        int c0 = ends[0], c1 = ends[1];
+        int[] idx = s.idx;
+        int bits = 0;
+        if (fourColor) {
+            // 4-цветный режим требует c0 > c1; при c0 == c1 все индексы 0
+            boolean swap = c0 < c1;
+            for (int i = 0; i < 16; i++) {
+                int v = c0 == c1 ? 0 : swap ? idx[i] ^ 1 : idx[i];
+                bits |= v << (i << 1);
+            }
+            if (swap) {
+                c0 = ends[1];
+                c1 = ends[0];
+            }
+        } else {
+            // 3-цветный режим требует c0 <= c1
+            boolean swap = c0 > c1;
+            for (int i = 0; i < 16; i++) {
+                int v = swap && idx[i] < 2 ? idx[i] ^ 1 : idx[i];
+                bits |= v << (i << 1);
+            }
+            if (swap) {
+                c0 = ends[1];
+                c1 = ends[0];
+            }
+        }
+        writeColor(out, p, c0, c1, bits);
+    }
+
+    private static void writeColor(byte[] out, int p, int c0, int c1, int bits) {
+        out[p] = (byte) c0;
+        out[p + 1] = (byte) (c0 >>> 8);
+        out[p + 2] = (byte) c1;
+        out[p + 3] = (byte) (c1 >>> 8);
+        out[p + 4] = (byte) bits;
+        out[p + 5] = (byte) (bits >>> 8);
+        out[p + 6] = (byte) (bits >>> 16);
+        out[p + 7] = (byte) (bits >>> 24);
+    }
+
+    /**
+     * Концы по ограничивающему параллелепипеду, сдвинутые внутрь на 1/16 диапазона.
+     */
+    private static void boundingBox(Scratch s, int n, int[] ends) {
+        int minR = 255, minG = 255, minB = 255, maxR = 0, maxG = 0, maxB = 0;
+        for (int k = 0; k < n; k++) {
+            int i = s.sel[k];
+            minR = Math.min(minR, s.r[i]); maxR = Math.max(maxR, s.r[i]);
+            minG = Math.min(minG, s.g[i]); maxG = Math.max(maxG, s.g[i]);
+            minB = Math.min(minB, s.b[i]); maxB = Math.max(maxB, s.b[i]);
+        }
+        int insetR = (maxR - minR) >> 4, insetG = (maxG - minG) >> 4, insetB = (maxB - minB) >> 4;
+        ends[0] = to565(maxR - insetR, maxG - insetG, maxB - insetB);
+        ends[1] = to565(minR + insetR, minG + insetG, minB + insetB);
+    }
+
+    /**
+     * Концы - крайние пиксели вдоль главной оси цветов блока (степенной метод по ковариации).
+     */
+    private static void principalAxis(Scratch s, int n, int[] ends) {
+        double mr = 0, mg = 0, mb = 0;
+        for (int k = 0; k < n; k++) {
+            int i = s.sel[k];
+            mr += s.r[i]; mg += s.g[i]; mb += s.b[i];
+        }
+        mr /= n; mg /= n; mb /= n;
+        double crr = 0, crg = 0, crb = 0, cgg = 0, cgb = 0, cbb = 0;
+        for (int k = 0; k < n; k++) {
+            int i = s.sel[k];
+            double dr = s.r[i] - mr, dg = s.g[i] - mg, db = s.b[i] - mb;
+            crr += dr * dr; crg += dr * dg; crb += dr * db;
+            cgg += dg * dg; cgb += dg * db; cbb += db * db;
+        }
+        double vr = 1, vg = 1, vb = 1;
+        for (int iter = 0; iter < 8; iter++) {
+            double nr = crr * vr + crg * vg + crb * vb;
+            double ng = crg * vr + cgg * vg + cgb * vb;
+            double nb = crb * vr + cgb * vg + cbb * vb;
+            double len = Math.max(Math.abs(nr), Math.max(Math.abs(ng), Math.abs(nb)));
+            if (len < 1e-9) {
+                break;
+            }
+            vr = nr / len; vg = ng / len; vb = nb / len;
+        }
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        int lo = s.sel[0], hi = s.sel[0];
+        for (int k = 0; k < n; k++) {
+            int i = s.sel[k];
+            double d = s.r[i] * vr + s.g[i] * vg + s.b[i] * vb;
+            if (d < min) { min = d; lo = i; }
+            if (d > max) { max = d; hi = i; }
+        }
+        ends[0] = to565(s.r[hi], s.g[hi], s.b[hi]);
+        ends[1] = to565(s.r[lo], s.g[lo], s.b[lo]);
+    }
+
+    /**
+     * Пересчитывает концы методом наименьших квадратов по текущим индексам.
+     * @return false, если система вырождена
+     */
+    private static boolean leastSquares(Scratch s, int n, boolean fourColor, int[] ends) {
+        double[] w0 = fourColor ? W0_FOUR : W0_THREE;
+        double[] w1 = fourColor ? W1_FOUR : W1_THREE;
+        double aa = 0, bb = 0, ab = 0;
+        double axR = 0, axG = 0, axB = 0, bxR = 0, bxG = 0, bxB = 0;
+        for (int k = 0; k < n; k++) {
+            int i = s.sel[k];
+            double a = w0[s.idx[i]], b = w1[s.idx[i]];
+            aa += a * a; bb += b * b; ab += a * b;
+            axR += a * s.r[i]; axG += a * s.g[i]; axB += a * s.b[i];
+            bxR += b * s.r[i]; bxG += b * s.g[i]; bxB += b * s.b[i];
+        }
+        double det = aa * bb - ab * ab;
+        if (Math.abs(det) < 1e-9) {
+            return false;
+        }
+        double f = 1.0 / det;
+        ends[0] = to565(clamp((axR * bb - bxR * ab) * f), clamp((axG * bb - bxG * ab) * f),
+                clamp((axB * bb - bxB * ab) * f));
+        ends[1] = to565(clamp((bxR * aa - axR * ab) * f), clamp((bxG * aa - axG * ab) * f),
+                clamp((bxB * aa - axB * ab) * f));
+        return true;
+    }
+
+    /**
+     * Выбирает для каждого пикселя ближайший цвет палитры (как её построит декодер).
+     * Непрозрачные пиксели вне выборки получают индекс 3 (прозрачность).
+     * @return суммарная квадратичная ошибка
+     */
+    private static long assignIndices(Scratch s, int n, int c0, int c1, boolean fourColor) {
+        int[] pal = s.palette;
+        int e0 = DDSDecoder.rgb565(c0), e1 = DDSDecoder.rgb565(c1);
+        pal[0] = e0;
+        pal[1] = e1;
+        if (fourColor) {
+            pal[2] = DDSDecoder.interp(e0, e1, 2, 1);
+            pal[3] = DDSDecoder.interp(e0, e1, 1, 2);
+        } else {
+            pal[2] = DDSDecoder.interp(e0, e1, 1, 1);
+        }
+        int colors = fourColor ? 4 : 3;
+        Arrays.fill(s.idx, 3);
+        long total = 0;
+        for (int k = 0; k < n; k++) {
+            int i = s.sel[k];
+            int best = 0, bestErr = Integer.MAX_VALUE;
+            for (int c = 0; c < colors; c++) {
+                int dr = ((pal[c] >>> 16) & 0xFF) - s.r[i];
+                int dg = ((pal[c] >>> 8) & 0xFF) - s.g[i];
+                int db = (pal[c] & 0xFF) - s.b[i];
+                int e = dr * dr + dg * dg + db * db;
+                if (e < bestErr) {
+                    bestErr = e;
+                    best = c;
+                }
+            }
+            s.idx[i] = best;
+            total += bestErr;
+        }
+        return total;
+    }
+
+    // ---------------------------------------------------------------- альфа
+
+    /**
+     * DXT3: 4 бита альфы на пиксель.
+     */
+    private static void encodeExplicitAlpha(Scratch s, byte[] out, int p) {
+        long bits = 0;
+        for (int i = 0; i < 16; i++) {
+            bits |= (long) Math.min(15, (s.a[i] + 8) / 17) << (i * 4);
+        }
+        for (int i = 0; i < 8; i++) {
+            out[p + i] = (byte) (bits >>> (8 * i));
+        }
+    }
+
+    /**
+     * DXT5: два опорных значения и 3-битные индексы. В режиме HIGH пробуется
+     * и 6-точечная таблица с точными 0 и 255.
+     */
+    private static void encodeSmoothAlpha(Scratch s, byte[] out, int p, Quality quality) {
+        int min = 255, max = 0;
+        for (int i = 0; i < 16; i++) {
+            min = Math.min(min, s.a[i]);
+            max = Math.max(max, s.a[i]);
+        }
+        int a0 = max, a1 = min;
+        long err = assignAlphaIndices(s, a0, a1, s.alphaIdx);
+        if (quality == Quality.HIGH && err > 0) {
+            int lo = 255, hi = 0;
+            for (int i = 0; i < 16; i++) {
+                int a = s.a[i];
+                if (a != 0 && a != 255) {
+                    lo = Math.min(lo, a);
+                    hi = Math.max(hi, a);
+                }
+            }
+            if (lo <= hi) {
+                long err6 = assignAlphaIndices(s, lo, hi, s.alphaIdx2);
+                if (err6 < err) {
+                    a0 = lo;
+                    a1 = hi;
+                    System.arraycopy(s.alphaIdx2, 0, s.alphaIdx, 0, 16);
+                }
+            }
+        }
+
+        long bits = 0;
+        for (int i = 0; i < 16; i++) {
+            bits |= (long) s.alphaIdx[i] << (i * 3);
+        }
+        out[p] = (byte) a0;
+        out[p + 1] = (byte) a1;
+        for (int i = 0; i < 6; i++) {
+            out[p + 2 + i] = (byte) (bits >>> (8 * i));
+        }
+    }
+
+    private static long assignAlphaIndices(Scratch s, int a0, int a1, int[] idx) {
+        int[] table = s.alphaTable;
+        DDSDecoder.smoothAlphaTable(a0, a1, table);
+        long total = 0;
+        for (int i = 0; i < 16; i++) {
+            int best = 0, bestErr = Integer.MAX_VALUE;
+            for (int t = 0; t < 8; t++) {
+                int d = table[t] - s.a[i];
+                if (d * d < bestErr) {
+                    bestErr = d * d;
+                    best = t;
+                }
+            }
+            idx[i] = best;
+            total += bestErr;
+        }
+        return total;
+    }
+
+    // ---------------------------------------------------------------- RGB565
+
+    /**
+     * Квантует цвет так, чтобы расширение декодера ({@code v << 3}, {@code v << 2}) дало ближайшее значение.
+     */
+    private static int to565(int r, int g, int b) {
+        return Math.min(31, (r + 4) >> 3) << 11 | Math.min(63, (g + 2) >> 2) << 5 | Math.min(31, (b + 4) >> 3);
+    }
+
+    private static int clamp(double v) {
+        return (int) Math.max(0, Math.min(255, Math.round(v)));
+    }
+}
@@ -0,0 +1,84 @@
+package org.foxesworld.cge.tools.cgtexEditor.preview;
+
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
+import org.foxesworld.cge.tools.cgtexEditor.utils.UIUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ImageImporter reads uncompressed source images (PNG and other formats supported by
+ * {@link ImageIO}) and compresses them to DXT with {@link DXTEncoder}, so packs can be
+ * built straight from source art without an external DDS tool.
+ */
+public final class ImageImporter {
+
+    /** Extensions (without the dot) accepted by {@link #isImage(Path)}. */
+    public static final List<String> EXTENSIONS = List.of("png", "jpg", "jpeg", "bmp");
+
+    /** Chooses DXT1 for fully opaque images and DXT5 otherwise. */
+    public static final byte FORMAT_AUTO = 0;
+
+    private ImageImporter() {
+    }
+
+    /**
+     * @return true if the file name has one of the {@link #EXTENSIONS}
+     */
+    public static boolean isImage(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Reads an image and compresses it to DXT. The texture is named after the file without
+     * its extension. Safe to call from multiple threads; large images are encoded in parallel.
+     *
+     * @param path    the image file
+     * @param format  {@link TextureEntry#FORMAT_DXT1}, {@link TextureEntry#FORMAT_DXT3},
+     *                {@link TextureEntry#FORMAT_DXT5} or {@link #FORMAT_AUTO}
+     * @param quality encoder quality
+     * @return a TextureInfo holding the compressed data
+     * @throws IOException if the file cannot be read or is not a supported image
+     */
+    public static TextureInfo readTexture(Path path, byte format, DXTEncoder.Quality quality) throws IOException {
+        BufferedImage img = ImageIO.read(path.toFile());
+        if (img == null) {
+            throw new IOException("Unsupported image format: " + path.getFileName());
+        }
+        int w = img.getWidth(), h = img.getHeight();
+        int[] argb = img.getRGB(0, 0, w, h, null, 0, w);
+        byte fmt = format != FORMAT_AUTO ? format
+                : hasAlpha(argb) ? TextureEntry.FORMAT_DXT5 : TextureEntry.FORMAT_DXT1;
+        if (!DXTEncoder.isSupported(fmt)) {
+            throw new IOException("Unsupported DXT format: " + format);
+        }
+        byte[] data = DXTEncoder.encode(w, h, argb, fmt, quality);
+        String name = UIUtils.stripExtension(path.getFileName().toString());
+        return new TextureInfo(path.toFile(), w, h, name, fmt, data);
+    }
+
+    /**
+     * Reads an image as a TextureEntry ready to be packed into a CGTEX file.
+     *
+     * @see #readTexture(Path, byte, DXTEncoder.Quality)
+     */
+    public static TextureEntry readEntry(Path path, byte format, DXTEncoder.Quality quality) throws IOException {
+        return readTexture(path, format, quality).toEntry();
+    }
+
+    private static boolean hasAlpha(int[] argb) {
+        for (int c : argb) {
+            if (c >>> 24 != 0xFF) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
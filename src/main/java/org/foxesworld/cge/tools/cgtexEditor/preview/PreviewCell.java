@@ -1,5 +1,6 @@
 package org.foxesworld.cge.tools.cgtexEditor.preview;
 
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
 import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
 
 import javax.swing.*;
@@ -9,6 +10,7 @@ import java.awt.image.BufferedImage;
 /**
  * PreviewCell is a JPanel that displays a scaled preview image of a texture
  * along with basic information (format and dimensions). It also provides a hover effect.
+ * The image is decoded in the background, see {@link PreviewLoader}.
  */
 public class PreviewCell extends JPanel {
     private static final int PANEL_WIDTH = 200;
@@ -20,9 +22,12 @@ public class PreviewCell extends JPanel {
     private static final Font INFO_FONT = new Font("Arial", Font.PLAIN, 12);
     private static final int PREVIEW_IMAGE_WIDTH = 180;
 
+    private final JLabel previewLabel;
+
     /**
-     * Constructs a PreviewCell for the given TextureInfo. The panel will display
-     * a scaled preview image and a small info section showing format and dimensions.
+     * Constructs a PreviewCell for the given TextureInfo. The panel shows the format and
+     * dimensions right away and a placeholder until {@link #setPreview} is called with
+     * an image from {@link #renderPreview}.
      *
      * @param ti the TextureInfo containing image data, format, and dimensions
      */
@@ -32,7 +37,7 @@ public class PreviewCell extends JPanel {
         setBackground(BACKGROUND_COLOR);
         setBorder(BorderFactory.createLineBorder(BORDER_COLOR, 2, true));
 
-        JLabel previewLabel = createPreviewLabel(ti);
+        previewLabel = createPreviewLabel();
         add(previewLabel, BorderLayout.CENTER);
 
         JPanel infoPanel = createInfoPanel(ti);
@@ -52,18 +57,45 @@ public class PreviewCell extends JPanel {
     }
 
     /**
-     * Creates a JLabel containing a scaled preview image extracted from the TextureInfo.
+     * Decodes and scales the preview image for the given TextureInfo. The texture is decoded
+     * at thumbnail resolution, so the full-size image is never built. Does not touch Swing
+     * components and is meant to be called off the event dispatch thread.
+     *
+     * @param ti the TextureInfo providing the source image
+     * @return the scaled preview image
+     */
+    public static BufferedImage renderPreview(TextureInfo ti) {
+        return scaleToWidth(ti.getThumbnail(PREVIEW_IMAGE_WIDTH), PREVIEW_IMAGE_WIDTH);
+    }
+
+    /**
+     * Replaces the placeholder with the rendered preview.
      *
-     * @param ti the TextureInfo providing the source BufferedImage
-     * @return a JLabel configured with the scaled preview image
+     * @param img an image from {@link #renderPreview}
      */
-    private JLabel createPreviewLabel(TextureInfo ti) {
-        BufferedImage img = ti.getPreviewImage();
-        Image scaledImage = img.getScaledInstance(PREVIEW_IMAGE_WIDTH, -1, Image.SCALE_SMOOTH);
-        ImageIcon icon = new ImageIcon(scaledImage);
+    public void setPreview(BufferedImage img) {
+        previewLabel.setText(null);
+        previewLabel.setIcon(new ImageIcon(img));
+    }
 
-        JLabel previewLabel = new JLabel(icon);
+    /**
+     * Shows a short message instead of the preview, e.g. when decoding failed.
+     */
+    public void setPlaceholder(String text) {
+        previewLabel.setIcon(null);
+        previewLabel.setText(text);
+    }
+
+    /**
+     * Creates the JLabel that holds the preview image, showing a placeholder until it is loaded.
+     *
+     * @return a JLabel configured for the preview image
+     */
+    private JLabel createPreviewLabel() {
+        JLabel previewLabel = new JLabel("Loading...");
         previewLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        previewLabel.setForeground(INFO_TEXT_COLOR);
+        previewLabel.setFont(INFO_FONT);
         previewLabel.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY, 1, true));
         previewLabel.setBackground(Color.BLACK);
         previewLabel.setOpaque(true);
@@ -71,6 +103,26 @@ public class PreviewCell extends JPanel {
         return previewLabel;
     }
 
+    /**
+     * Scales a (small) thumbnail to the given width, keeping the aspect ratio.
+     *
+     * @param img   the thumbnail to scale
+     * @param width the target width
+     * @return the scaled image, or {@code img} itself if it already has that width
+     */
+    private static BufferedImage scaleToWidth(BufferedImage img, int width) {
+        if (img.getWidth() == width) {
+            return img;
+        }
+        int height = Math.max(1, Math.round((float) img.getHeight() * width / img.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(img, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
     /**
      * Creates a panel displaying texture format and dimensions in a vertical layout.
      *
@@ -82,7 +134,7 @@ public class PreviewCell extends JPanel {
         infoPanel.setLayout(new BoxLayout(infoPanel, BoxLayout.Y_AXIS));
         infoPanel.setOpaque(false);
 
-        JLabel typeLabel = new JLabel("Format: DXT" + ti.getFormatCode());
+        JLabel typeLabel = new JLabel("Format: " + TextureEntry.formatName(ti.getFormatCode()));
         typeLabel.setFont(INFO_FONT);
         typeLabel.setForeground(INFO_TEXT_COLOR);
         infoPanel.add(typeLabel);
@@ -0,0 +1,133 @@
+package org.foxesworld.cge.tools.cgtexEditor.preview;
+
+import javax.swing.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * PreviewLoader decodes previews on a small pool of background threads and hands the
+ * results back to the Swing event dispatch thread, so the UI never blocks on decoding.
+ * <p>
+ * A {@link Slot} stands for one place on screen (e.g. the preview panel): only the result
+ * of its latest request is delivered. A newer request cancels the previous one if it has
+ * not started yet, and a result that arrives after the slot moved on is dropped.
+ * Requests that should all complete (e.g. list thumbnails) use {@link #submit} directly.
+ */
+public final class PreviewLoader {
+
+    private static final PreviewLoader SHARED =
+            new PreviewLoader(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+    private final ExecutorService executor;
+
+    /**
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if threads is less than 1
+     */
+    public PreviewLoader(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+    }
+
+    /**
+     * @return the loader shared by the editor's panels and list
+     */
+    public static PreviewLoader shared() {
+        return SHARED;
+    }
+
+    /**
+     * Creates a slot whose requests replace each other.
+     */
+    public Slot newSlot() {
+        return new Slot();
+    }
+
+    /**
+     * Runs {@code task} on a worker thread and passes its result, or the exception it threw,
+     * to {@code onDone} / {@code onError} on the event dispatch thread.
+     *
+     * @return the future of the background task; cancelling it before it starts skips the task
+     */
+    public <T> Future<?> submit(Callable<T> task, Consumer<? super T> onDone, Consumer<? super Exception> onError) {
+        return executor.submit(() -> run(task, () -> true, onDone, onError));
+    }
+
+    private static <T> void run(Callable<T> task, BooleanSupplier current,
+                                Consumer<? super T> onDone, Consumer<? super Exception> onError) {
+        if (!current.getAsBoolean()) {
+            return;
+        }
+        T result;
+        try {
+            result = task.call();
+        } catch (Exception e) {
+            SwingUtilities.invokeLater(() -> {
+                if (current.getAsBoolean()) onError.accept(e);
+            });
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (current.getAsBoolean()) onDone.accept(result);
+        });
+    }
+
+    /**
+     * A target that shows the result of its latest request only. Methods are meant to be
+     * called on the event dispatch thread.
+     */
+    public final class Slot {
+        private final AtomicLong generation = new AtomicLong();
+        private Future<?> pending;
+
+        private Slot() {
+        }
+
+        /**
+         * Cancels the previous request and schedules {@code task}. The callbacks run on the
+         * event dispatch thread, and only if no newer request was made in the meantime.
+         */
+        public <T> void submit(Callable<T> task, Consumer<? super T> onDone, Consumer<? super Exception> onError) {
+            cancelPending();
+            long gen = generation.incrementAndGet();
+            pending = executor.submit(() -> run(task, () -> generation.get() == gen, onDone, onError));
+        }
+
+        /**
+         * Cancels the current request; its result, if already computed, is dropped.
+         */
+        public void cancel() {
+            cancelPending();
+            generation.incrementAndGet();
+        }
+
+        private void cancelPending() {
+            if (pending != null) {
+                // decoders do not react to interrupts; a running task finishes and its result is dropped
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "cgtex-preview-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.foxesworld.cge.tools.cgtexEditor.preview;
 
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
 import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
 
 import javax.swing.*;
@@ -8,8 +9,14 @@ import java.awt.*;
 public class TextureCellRenderer extends JPanel implements ListCellRenderer<TextureInfo> {
     private final JLabel nameLabel = new JLabel();
     private final JLabel infoLabel = new JLabel();
-
-    public TextureCellRenderer() {
+    private final JLabel iconLabel = new JLabel();
+    private final ThumbnailStore thumbnails;
+
+    /**
+     * @param thumbnails source of the list icons; thumbnails are requested only for painted rows
+     */
+    public TextureCellRenderer(ThumbnailStore thumbnails) {
+        this.thumbnails = thumbnails;
         setLayout(new BorderLayout(5,5));
         JPanel textPanel = new JPanel(new GridLayout(0,1));
         nameLabel.setFont(nameLabel.getFont().deriveFont(Font.BOLD, 14f));
@@ -17,7 +24,8 @@ public class TextureCellRenderer extends JPanel implements ListCellRenderer<Text
         infoLabel.setForeground(Color.GRAY);
         textPanel.add(nameLabel);
         textPanel.add(infoLabel);
-        JLabel iconLabel = new JLabel();
+        iconLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        iconLabel.setPreferredSize(new Dimension(ThumbnailStore.SIZE, ThumbnailStore.SIZE));
         add(iconLabel, BorderLayout.WEST);
         add(textPanel, BorderLayout.CENTER);
         setBorder(BorderFactory.createEmptyBorder(2,2,2,2));
@@ -29,13 +37,17 @@ public class TextureCellRenderer extends JPanel implements ListCellRenderer<Text
                                                   int index,
                                                   boolean isSelected,
                                                   boolean cellHasFocus) {
-        //iconLabel.setIcon(value.getThumbnailIcon());
+        Icon icon = thumbnails.getIcon(value, list::repaint);
+        iconLabel.setIcon(icon != null ? icon : ThumbnailStore.PLACEHOLDER);
         nameLabel.setText(value.getName());
-        infoLabel.setText(String.format("%dx%d, DXT%s",
+        String info = String.format("%dx%d, %s",
                 value.getWidth(),
                 value.getHeight(),
-                value.getFormatCode()));
-                //value.getMipMapCount()));
+                TextureEntry.formatName(value.getFormatCode()));
+        if (value.getMipCount() > 1) {
+            info += String.format(", %d mips", value.getMipCount());
+        }
+        infoLabel.setText(info);
 
         if (isSelected) {
             setBackground(list.getSelectionBackground());
@@ -48,8 +60,3 @@ public class TextureCellRenderer extends JPanel implements ListCellRenderer<Text
         return this;
     }
 }
-
-
-
-
-
@@ -0,0 +1,354 @@
+package org.foxesworld.cge.tools.cgtexEditor.preview;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ThumbnailStore keeps small fixed-size ({@link #SIZE} px) icons for the texture list.
+ * <p>
+ * Icons are generated lazily on a {@link PreviewLoader} when a cell asks for them, so only
+ * rows that are actually painted are decoded; requests for rows that scrolled out of view
+ * can be dropped with {@link #retainPending}. At most {@code capacity} icons are kept,
+ * least recently used ones are evicted first.
+ * <p>
+ * Icons can be saved next to a .cgtex file as a sidecar ({@code <pack>.cgtex.thumbs}) and read
+ * back in the background when the pack is opened again, so the list shows them without
+ * decoding the textures. The sidecar is only a cache: it is ignored if it is older than the
+ * pack or cannot be read. Set
+ * {@code -Dcgtex.thumbnails.sidecar=false} to disable it.
+ */
+public final class ThumbnailStore {
+    private static final Logger logger = LogManager.getLogger(ThumbnailStore.class);
+
+    /** Larger side of a thumbnail, in pixels. */
+    public static final int SIZE = 48;
+    public static final String SIDECAR_EXTENSION = ".thumbs";
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int SIDECAR_MAGIC = 0x43475448; // "CGTH"
+    private static final int SIDECAR_VERSION = 1;
+    private static final boolean SIDECAR_ENABLED =
+            Boolean.parseBoolean(System.getProperty("cgtex.thumbnails.sidecar", "true"));
+
+    /** Shown while a thumbnail is being generated. */
+    public static final Icon PLACEHOLDER = new Icon() {
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.setColor(new Color(60, 60, 60));
+            g.fillRect(x + 4, y + 4, SIZE - 8, SIZE - 8);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return SIZE;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return SIZE;
+        }
+    };
+
+    private final PreviewLoader loader;
+    private final int capacity;
+    private final Map<TextureInfo, ImageIcon> icons;
+    private final Map<TextureInfo, Pending> pending = new HashMap<>();
+    private final Object sidecarLock = new Object();
+    /** Stamps requests, so a result is only stored if its request is still the pending one. */
+    private long generation;
+    /** Bumped when icons are dropped; a sidecar read before that is stale and not published. */
+    private long epoch;
+
+    private record Pending(Future<?> future, long generation) {
+    }
+
+    public ThumbnailStore(PreviewLoader loader) {
+        this(loader, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param loader   pool the thumbnails are generated on
+     * @param capacity maximum number of icons kept in memory
+     */
+    public ThumbnailStore(PreviewLoader loader, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.loader = loader;
+        this.capacity = capacity;
+        this.icons = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TextureInfo, ImageIcon> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the thumbnail if it is ready. Otherwise schedules it (once) and returns null;
+     * {@code onLoaded} is then called on the event dispatch thread when it is ready, typically
+     * to repaint the list.
+     */
+    public synchronized Icon getIcon(TextureInfo texture, Runnable onLoaded) {
+        ImageIcon icon = icons.get(texture);
+        if (icon != null || pending.containsKey(texture)) {
+            return icon;
+        }
+        long gen = ++generation;
+        Future<?> future = loader.submit(() -> render(texture), image -> {
+            synchronized (this) {
+                // a running render cannot be cancelled; drop it if cleared or invalidated meanwhile
+                if (!removePending(texture, gen)) {
+                    return;
+                }
+                icons.put(texture, new ImageIcon(image));
+            }
+            onLoaded.run();
+        }, e -> {
+            synchronized (this) {
+                removePending(texture, gen);
+            }
+            logger.warn("Cannot create thumbnail for {}: {}", texture.getName(), e.toString());
+        });
+        pending.put(texture, new Pending(future, gen));
+        return null;
+    }
+
+    private boolean removePending(TextureInfo texture, long gen) {
+        Pending p = pending.get(texture);
+        if (p == null || p.generation() != gen) {
+            return false;
+        }
+        pending.remove(texture);
+        return true;
+    }
+
+    /**
+     * Cancels scheduled thumbnails for textures not in {@code visible}, e.g. rows that
+     * scrolled out of view before their turn came. They are scheduled again when painted.
+     */
+    public synchronized void retainPending(Set<TextureInfo> visible) {
+        for (Iterator<Map.Entry<TextureInfo, Pending>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<TextureInfo, Pending> e = it.next();
+            if (!visible.contains(e.getKey()) && e.getValue().future().cancel(false)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops the thumbnail of a texture, e.g. after its data was replaced.
+     */
+    public synchronized void invalidate(TextureInfo texture) {
+        Pending p = pending.remove(texture);
+        if (p != null) {
+            p.future().cancel(false);
+        }
+        icons.remove(texture);
+        epoch++;
+    }
+
+    public synchronized void clear() {
+        pending.values().forEach(p -> p.future().cancel(false));
+        pending.clear();
+        icons.clear();
+        epoch++;
+    }
+
+    /**
+     * Decodes a thumbnail whose larger side is {@link #SIZE}. Can be called from any thread.
+     */
+    public static BufferedImage render(TextureInfo texture) {
+        BufferedImage img = texture.getThumbnail(SIZE);
+        float scale = (float) SIZE / Math.max(img.getWidth(), img.getHeight());
+        int w = Math.max(1, Math.round(img.getWidth() * scale));
+        int h = Math.max(1, Math.round(img.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(img, 0, 0, w, h, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /**
+     * @return the sidecar file for a .cgtex file
+     */
+    public static File sidecarFile(File pack) {
+        return new File(pack.getPath() + SIDECAR_EXTENSION);
+    }
+
+    /**
+     * Reads thumbnails saved next to {@code pack} for the given textures on the loader's pool
+     * and returns at once. Entries are matched by name, dimensions and format, at most
+     * {@code capacity} are kept; a missing, stale or damaged sidecar is ignored. The icons are
+     * published on the event dispatch thread, then {@code onLoaded} is called to repaint; they
+     * are dropped if the store was cleared or invalidated in the meantime.
+     *
+     * @return the background task, or null if there is no usable sidecar
+     */
+    public Future<?> loadSidecar(File pack, Collection<TextureInfo> textures, Runnable onLoaded) {
+        File file = sidecarFile(pack);
+        if (!SIDECAR_ENABLED || !file.isFile() || file.lastModified() < pack.lastModified()) {
+            return null;
+        }
+        List<TextureInfo> snapshot = List.copyOf(textures);
+        long readEpoch;
+        synchronized (this) {
+            readEpoch = epoch;
+        }
+        return loader.submit(() -> readSidecar(file, snapshot), loaded -> {
+            synchronized (this) {
+                if (epoch != readEpoch) {
+                    return;
+                }
+                loaded.forEach((ti, icon) -> {
+                    Pending p = pending.remove(ti);
+                    if (p != null) {
+                        p.future().cancel(false);
+                    }
+                    icons.putIfAbsent(ti, icon);
+                });
+            }
+            onLoaded.run();
+        }, e -> logger.warn("Cannot read thumbnails from {}: {}", file, e.toString()));
+    }
+
+    private Map<TextureInfo, ImageIcon> readSidecar(File file, List<TextureInfo> textures) throws IOException {
+        Map<String, TextureInfo> byKey = new HashMap<>();
+        for (TextureInfo ti : textures) {
+            byKey.put(sidecarKey(ti.getName(), ti.getWidth(), ti.getHeight(), ti.getFormatCode()), ti);
+        }
+        Map<TextureInfo, ImageIcon> loaded = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != SIDECAR_MAGIC || in.readInt() != SIDECAR_VERSION) {
+                return loaded;
+            }
+            int count = in.readInt();
+            byte[] pixels = new byte[SIZE * SIZE * Integer.BYTES];
+            for (int i = 0; i < count && loaded.size() < capacity; i++) {
+                String name = in.readUTF();
+                int width = in.readInt(), height = in.readInt();
+                byte format = in.readByte();
+                int w = in.readUnsignedByte(), h = in.readUnsignedByte();
+                if (w == 0 || h == 0 || w > SIZE || h > SIZE) {
+                    throw new IOException("Invalid thumbnail size " + w + "x" + h);
+                }
+                int length = w * h * Integer.BYTES;
+                TextureInfo ti = byKey.get(sidecarKey(name, width, height, format));
+                if (ti == null) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                in.readFully(pixels, 0, length);
+                int[] argb = new int[w * h];
+                ByteBuffer.wrap(pixels, 0, length).asIntBuffer().get(argb);
+                BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+                img.setRGB(0, 0, w, h, argb, 0, w);
+                loaded.put(ti, new ImageIcon(img));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Writes the thumbnails already generated for the given textures next to {@code pack} in
+     * the background and returns at once, so it can be called from the event dispatch thread.
+     * Textures without a thumbnail are left out rather than rendered, so saving does not compete
+     * with the visible rows for the loader's pool. The sidecar is written to a temporary file
+     * and moved into place, so a reader never sees a half-written one.
+     *
+     * @return the background task, or null if sidecars are disabled
+     */
+    public Future<?> saveSidecar(File pack, List<TextureInfo> textures) {
+        if (!SIDECAR_ENABLED) {
+            return null;
+        }
+        Set<TextureInfo> wanted = new HashSet<>(textures);
+        Map<TextureInfo, BufferedImage> rendered = new LinkedHashMap<>();
+        synchronized (this) {
+            // iterating does not touch the LRU order, unlike icons.get
+            icons.forEach((ti, icon) -> {
+                if (wanted.contains(ti) && icon.getImage() instanceof BufferedImage img) {
+                    rendered.put(ti, img);
+                }
+            });
+        }
+        return loader.submit(() -> {
+            writeSidecar(pack, rendered);
+            return null;
+        }, done -> {
+        }, e -> logger.warn("Cannot write thumbnails for {}: {}", pack, e.toString()));
+    }
+
+    private void writeSidecar(File pack, Map<TextureInfo, BufferedImage> rendered) {
+        File file = sidecarFile(pack);
+        File tmp = new File(file.getPath() + ".tmp");
+        // one sidecar at a time, so two saves of the same pack do not write the same temporary file
+        synchronized (sidecarLock) {
+            try {
+                writeSidecarFile(tmp, rendered);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Cannot write thumbnails to {}: {}", file, e.toString());
+                tmp.delete();
+            }
+        }
+    }
+
+    private static void writeSidecarFile(File file, Map<TextureInfo, BufferedImage> rendered) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(SIDECAR_MAGIC);
+            out.writeInt(SIDECAR_VERSION);
+            out.writeInt(rendered.size());
+            ByteBuffer pixels = ByteBuffer.allocate(SIZE * SIZE * Integer.BYTES);
+            for (Map.Entry<TextureInfo, BufferedImage> e : rendered.entrySet()) {
+                TextureInfo ti = e.getKey();
+                BufferedImage img = e.getValue();
+                int w = img.getWidth(), h = img.getHeight();
+                out.writeUTF(ti.getName());
+                out.writeInt(ti.getWidth());
+                out.writeInt(ti.getHeight());
+                out.writeByte(ti.getFormatCode());
+                out.writeByte(w);
+                out.writeByte(h);
+                pixels.clear();
+                pixels.asIntBuffer().put(img.getRGB(0, 0, w, h, null, 0, w));
+                out.write(pixels.array(), 0, w * h * Integer.BYTES);
+            }
+        }
+    }
+
+    private static String sidecarKey(String name, int width, int height, byte format) {
+        return name + '\0' + width + 'x' + height + '\0' + format;
+    }
+}
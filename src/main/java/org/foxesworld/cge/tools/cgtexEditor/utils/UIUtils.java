@@ -10,8 +10,10 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.StringJoiner;
 
 /**
  * Utility methods for loading icons, setting up themes, creating file choosers, and related UI tasks.
@@ -43,7 +45,8 @@ public class UIUtils {
 
     /**
      * Loads an .ico icon from resources and sets it as the icon for the given JFrame.
-     * Attempts to select the best-resolution image from the .ico file.
+     * Attempts to select the best-resolution image from the .ico file; only the ICO directory
+     * is read to choose it, and only the chosen image is decoded.
      *
      * @param frame the JFrame on which to set the window icon
      */
@@ -51,10 +54,9 @@ public class UIUtils {
         try (InputStream icoStream = UIUtils.class.getClassLoader().getResourceAsStream(THEME_ICON_PATH)) {
             if (icoStream != null) {
                 ICOParser parser = new ICOParser();
-                java.util.List<BufferedImage> iconsList = parser.parse(icoStream);
-                BufferedImage bestIcon = parser.getBestMatchingIcon(iconsList, 256, 256);
-                if (bestIcon != null) {
-                    frame.setIconImages(java.util.List.of(bestIcon));
+                ICOParser.IconHandle best = parser.parseDirectory(icoStream).findBestMatch(256, 256);
+                if (best != null) {
+                    frame.setIconImages(java.util.List.of(best.decode()));
                 }
             } else {
                 System.err.println("ICO icon resource not found: " + THEME_ICON_PATH);
@@ -100,6 +102,24 @@ public class UIUtils {
         return chooser;
     }
 
+    /**
+     * Creates and configures a JFileChooser with a single filter covering several file extensions.
+     *
+     * @param dialogTitle the title to display on the file chooser dialog
+     * @param multiSelect true to allow multiple selection; false for single selection only
+     * @param description the filter description shown in the dialog
+     * @param extensions  the file extensions to accept (without the dot)
+     * @return a configured JFileChooser instance
+     */
+    public static JFileChooser createFileChooser(String dialogTitle, boolean multiSelect, String description,
+                                                 String... extensions) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(dialogTitle);
+        chooser.setMultiSelectionEnabled(multiSelect);
+        chooser.setFileFilter(new FileNameExtensionFilter(description, extensions));
+        return chooser;
+    }
+
     /**
      * Removes the file extension from the given filename string.
      *
@@ -110,4 +130,36 @@ public class UIUtils {
         int idx = filename.lastIndexOf('.');
         return (idx > 0) ? filename.substring(0, idx) : filename;
     }
+
+    /**
+     * Resolves a log directory path, creates it and stores it in the {@code log.dir} system property.
+     * The {@code APPDATA} path segment is replaced with the APPDATA environment variable,
+     * or with the user's home directory where it is not defined (e.g. on Linux).
+     *
+     * @param pathWithEnv the path, e.g. "APPDATA/FoxesWorld/CGTEX"
+     */
+    public static void initLogDirectory(String pathWithEnv) {
+        String[] parts = pathWithEnv.split("[/\\\\]+");
+        StringJoiner pathBuilder = new StringJoiner(File.separator);
+
+        for (String part : parts) {
+            if (part.equalsIgnoreCase("APPDATA")) {
+                String appData = System.getenv("APPDATA");
+                pathBuilder.add(appData != null ? appData : System.getProperty("user.home"));
+            } else {
+                pathBuilder.add(part);
+            }
+        }
+
+        File logDir = new File(pathBuilder.toString());
+
+        if (!logDir.exists()) {
+            boolean created = logDir.mkdirs();
+            if (!created) {
+                throw new RuntimeException("Не удалось создать директорию: " + logDir.getAbsolutePath());
+            }
+        }
+
+        System.setProperty("log.dir", logDir.getAbsolutePath());
+    }
 }
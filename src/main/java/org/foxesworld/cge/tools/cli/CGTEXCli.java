@@ -0,0 +1,401 @@
+package org.foxesworld.cge.tools.cli;
+
+import org.foxesworld.cge.core.file.cgtex.CGTEXFile;
+import org.foxesworld.cge.core.file.cgtex.CGTEXIndexEntry;
+import org.foxesworld.cge.core.file.cgtex.CGTEXMetadata;
+import org.foxesworld.cge.core.file.cgtex.TextureEntry;
+import org.foxesworld.cge.core.file.cgtex.codec.Codecs;
+import org.foxesworld.cge.core.file.cgtex.codec.CompressionPolicy;
+import org.foxesworld.cge.core.file.cgtex.reader.CGTEXFileReader;
+import org.foxesworld.cge.core.file.cgtex.reader.ReadMode;
+import org.foxesworld.cge.core.file.cgtex.writer.CGTEXPackPipeline;
+import org.foxesworld.cge.core.file.cgtex.writer.CGTEXStreamWriter;
+import org.foxesworld.cge.tools.cgtexEditor.FileExporter;
+import org.foxesworld.cge.tools.cgtexEditor.info.TextureInfo;
+import org.foxesworld.cge.tools.cgtexEditor.preview.DDSParser;
+import org.foxesworld.cge.tools.cgtexEditor.preview.DXTEncoder;
+import org.foxesworld.cge.tools.cgtexEditor.preview.ImageImporter;
+import org.foxesworld.cge.tools.cgtexEditor.utils.UIUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Headless command-line packer/unpacker for .cgtex files. Does not touch Swing,
+ * so it runs on build agents without a display.
+ * <pre>
+ * pack    [options] &lt;out.cgtex&gt; &lt;dds/png files | dirs | globs&gt;...
+ * unpack  [options] &lt;in.cgtex&gt; &lt;out dir&gt;
+ * extract [options] &lt;in.cgtex&gt; &lt;out dir&gt; &lt;texture name&gt;...
+ * list    [options] &lt;cgtex files | dirs | globs&gt;...
+ * verify  [options] &lt;cgtex files | dirs | globs&gt;...
+ *
+ * options:
+ *   --threads N           worker threads (default: number of CPUs)
+ *   --compress MODE       pack: none | deflate | auto (default: none)
+ *   --version N           pack: CGTEX format version to write (default: latest)
+ *   --dxt FORMAT          pack: DXT format for images: auto | 1 | 3 | 5 (default: auto)
+ *   --quality MODE        pack: image encoder quality: fast | high (default: high)
+ *   --format EXT          unpack/extract: export format, e.g. dds or png (default: dds)
+ * </pre>
+ * unpack and extract refuse packs whose texture names would be written outside the output
+ * directory or to the same file twice; nothing is exported in that case. pack likewise refuses
+ * inputs that would produce the same texture name (the file name without its extension).
+ * <p>
+ * Exit code is 0 on success, 1 on failure and 2 on invalid usage.
+ */
+public final class CGTEXCli {
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final String EXT_DDS = "dds";
+    private static final String EXT_CGTEX = "cgtex";
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Map<String, String> options = new HashMap<>();
+    private final List<String> args = new ArrayList<>();
+
+    private CGTEXCli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] argv) {
+        System.setProperty("java.awt.headless", "true");
+        UIUtils.initLogDirectory("APPDATA/FoxesWorld/CGTEX");
+        if (System.getProperty("log.level") == null) {
+            System.setProperty("log.level", "WARN");
+        }
+        System.exit(new CGTEXCli(System.out, System.err).run(argv));
+    }
+
+    private int run(String[] argv) {
+        if (argv.length == 0) {
+            return usage("No command given");
+        }
+        try {
+            parseArgs(argv);
+            return switch (argv[0]) {
+                case "pack" -> pack();
+                case "unpack" -> unpack(false);
+                case "extract" -> unpack(true);
+                case "list" -> list();
+                case "verify" -> verify();
+                case "help", "-h", "--help" -> usage(null);
+                default -> usage("Unknown command: " + argv[0]);
+            };
+        } catch (IllegalArgumentException e) {
+            return usage(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    private void parseArgs(String[] argv) {
+        for (int i = 1; i < argv.length; i++) {
+            String arg = argv[i];
+            if (arg.startsWith("--")) {
+                if (i + 1 >= argv.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                options.put(arg.substring(2), argv[++i]);
+            } else {
+                args.add(arg);
+            }
+        }
+    }
+
+    private int pack() throws IOException {
+        requireArgs(2, "pack <out.cgtex> <inputs>...");
+        File target = new File(args.get(0));
+        List<String> extensions = new ArrayList<>(ImageImporter.EXTENSIONS);
+        extensions.add(0, EXT_DDS);
+        List<Path> inputs = PathResolver.resolve(args.subList(1, args.size()), extensions.toArray(String[]::new));
+        if (inputs.isEmpty()) {
+            throw new IOException("No DDS or image files found");
+        }
+        checkDuplicateNames(inputs);
+        CompressionPolicy policy = compressionPolicy(options.getOrDefault("compress", "none"));
+        byte dxtFormat = dxtFormat(options.getOrDefault("dxt", "auto"));
+        DXTEncoder.Quality quality = quality(options.getOrDefault("quality", "high"));
+
+        long start = System.nanoTime();
+        boolean packed = false;
+        try {
+            try (CGTEXFile cgtexFile = new CGTEXFile(target, "rw");
+                 CGTEXPackPipeline pipeline = new CGTEXPackPipeline(threads())) {
+                if (options.containsKey("version")) {
+                    cgtexFile.setVERSION(intOption("version"));
+                }
+                try (CGTEXStreamWriter writer = cgtexFile.openStreamWriter()) {
+                    pipeline.setProcessor(policy::encode);
+                    pipeline.pack(inputs, path -> ImageImporter.isImage(path)
+                            ? ImageImporter.readEntry(path, dxtFormat, quality)
+                            : DDSParser.readEntry(path), writer);
+                    writer.finish();
+                }
+            }
+            packed = true;
+        } finally {
+            if (!packed) {
+                // do not leave a partially written pack behind
+                Files.deleteIfExists(target.toPath());
+            }
+        }
+        out.printf("Packed %d textures into %s (%d bytes) in %d ms%n",
+                inputs.size(), target, target.length(), (System.nanoTime() - start) / 1_000_000);
+        return EXIT_OK;
+    }
+
+    /**
+     * Textures are named after the input file without its extension, so two inputs with the same
+     * base name (or the same file given twice) would produce duplicate entries in the pack.
+     */
+    private static void checkDuplicateNames(List<Path> inputs) throws IOException {
+        Map<String, List<Path>> byName = new LinkedHashMap<>();
+        for (Path input : inputs) {
+            byName.computeIfAbsent(UIUtils.stripExtension(input.getFileName().toString()), n -> new ArrayList<>())
+                    .add(input);
+        }
+        StringBuilder clashes = new StringBuilder();
+        byName.forEach((name, paths) -> {
+            if (paths.size() > 1) {
+                clashes.append(System.lineSeparator()).append("  ").append(name).append(": ").append(paths);
+            }
+        });
+        if (clashes.length() > 0) {
+            throw new IOException("Duplicate texture names:" + clashes);
+        }
+    }
+
+    private int unpack(boolean selected) throws IOException {
+        requireArgs(selected ? 3 : 2, selected
+                ? "extract <in.cgtex> <out dir> <texture name>..."
+                : "unpack <in.cgtex> <out dir>");
+        String format = options.getOrDefault("format", EXT_DDS).toLowerCase();
+        if (!FileExporter.getFormats().contains(format)) {
+            throw new IllegalArgumentException("Unknown format: " + format + ", expected one of " + FileExporter.getFormats());
+        }
+        Path outDir = Files.createDirectories(Paths.get(args.get(1))).toAbsolutePath().normalize();
+
+        try (CGTEXFile cgtexFile = new CGTEXFile(new File(args.get(0)), "r");
+             CGTEXPackPipeline pipeline = new CGTEXPackPipeline(threads())) {
+            CGTEXFileReader reader = cgtexFile.readFile(ReadMode.INDEX);
+            List<Integer> indices = new ArrayList<>();
+            if (selected) {
+                for (String name : args.subList(2, args.size())) {
+                    int i = reader.indexOf(name);
+                    if (i < 0) {
+                        throw new IOException("Texture not found: " + name);
+                    }
+                    indices.add(i);
+                }
+            } else {
+                IntStream.range(0, reader.getIndex().size()).forEach(indices::add);
+            }
+            List<CGTEXIndexEntry> index = reader.getIndex();
+            Map<Integer, Path> targets = new HashMap<>();
+            Map<Path, String> used = new HashMap<>();
+            for (int i : indices) {
+                String name = index.get(i).getName();
+                Path target = outputPath(outDir, name, format);
+                String previous = used.putIfAbsent(target, name);
+                if (previous != null) {
+                    throw new IOException("Duplicate texture name: " + name
+                            + (previous.equals(name) ? "" : " (same output file as " + previous + ")"));
+                }
+                targets.put(i, target);
+            }
+
+            pipeline.forEachOrdered(indices, i -> {
+                TextureInfo ti = new TextureInfo(reader.getTexture(i));
+                File file = targets.get(i).toFile();
+                File parent = file.getParentFile();
+                if (parent != null) {
+                    Files.createDirectories(parent.toPath());
+                }
+                FileExporter.export(ti, file, format);
+                return file;
+            }, file -> out.println(file));
+            out.printf("Exported %d textures to %s%n", indices.size(), outDir);
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Resolves the export path of a texture. Names may contain directories, but the result
+     * must stay under {@code outDir}; names such as {@code ../x} or absolute paths are refused.
+     */
+    private static Path outputPath(Path outDir, String name, String format) throws IOException {
+        Path target;
+        try {
+            target = outDir.resolve(name + "." + format).normalize();
+        } catch (InvalidPathException e) {
+            throw new IOException("Invalid texture name: " + name);
+        }
+        if (!target.startsWith(outDir) || target.equals(outDir)) {
+            throw new IOException("Texture name escapes the output directory: " + name);
+        }
+        return target;
+    }
+
+    private int list() throws IOException {
+        requireArgs(1, "list <cgtex files>...");
+        List<Path> files = PathResolver.resolve(args, EXT_CGTEX);
+        try (CGTEXPackPipeline pipeline = new CGTEXPackPipeline(threads())) {
+            pipeline.forEachOrdered(files, CGTEXCli::readIndex, this::printIndex);
+        }
+        return EXIT_OK;
+    }
+
+    private static Listing readIndex(Path path) throws IOException {
+        try (CGTEXFile cgtexFile = new CGTEXFile(path.toFile(), "r")) {
+            CGTEXFileReader reader = cgtexFile.readFile(ReadMode.INDEX);
+            return new Listing(path, reader.getMetadata(), reader.getIndex());
+        }
+    }
+
+    private void printIndex(Listing listing) {
+        CGTEXMetadata md = listing.metadata();
+        out.printf("%s: version %d, %d textures, %d bytes, ratio %.3f%n",
+                listing.path(), md.getVersion(), md.getTextureCount(), md.getFileSize(), md.getCompressionRatio());
+        for (CGTEXIndexEntry e : listing.index()) {
+            out.printf("  %-40s %5dx%-5d %-6s %2d %-8s %10d %10d%n",
+                    e.getName(), e.getWidth(), e.getHeight(), TextureEntry.formatName(e.getFormat()),
+                    e.getMipCount(), codecName(e.getCodec()), e.getLength(), e.getRawLength());
+        }
+    }
+
+    private int verify() throws IOException {
+        requireArgs(1, "verify <cgtex files>...");
+        List<Path> files = PathResolver.resolve(args, EXT_CGTEX);
+        int[] failed = {0};
+        try (CGTEXPackPipeline pipeline = new CGTEXPackPipeline(threads())) {
+            pipeline.forEachOrdered(files, CGTEXCli::verifyFile, problems -> {
+                if (problems.isEmpty()) {
+                    return;
+                }
+                failed[0]++;
+                problems.forEach(err::println);
+            });
+        }
+        out.printf("Verified %d files, %d failed%n", files.size(), failed[0]);
+        return failed[0] == 0 ? EXIT_OK : EXIT_FAILURE;
+    }
+
+    /**
+     * Reads and decodes every payload of a file and checks it against its dimensions and format.
+     *
+     * @return problems found, empty if the file is valid
+     */
+    private static List<String> verifyFile(Path path) {
+        List<String> problems = new ArrayList<>();
+        try (CGTEXFile cgtexFile = new CGTEXFile(path.toFile(), "r")) {
+            CGTEXFileReader reader = cgtexFile.readFile(ReadMode.INDEX);
+            for (CGTEXIndexEntry e : reader.getIndex()) {
+                byte[] data = reader.readPayload(e);
+                long expected = TextureEntry.mipChainLength(e.getWidth(), e.getHeight(), e.getFormat(),
+                        e.getMipCount());
+                if (TextureEntry.blockSize(e.getFormat()) == 0) {
+                    problems.add(path + ": " + e.getName() + ": unknown format " + e.getFormat());
+                } else if (data.length < expected) {
+                    problems.add(String.format("%s: %s: %d bytes, expected at least %d for %dx%d %s",
+                            path, e.getName(), data.length, expected, e.getWidth(), e.getHeight(),
+                            TextureEntry.formatName(e.getFormat())));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            problems.add(path + ": " + e.getMessage());
+        }
+        return problems;
+    }
+
+    private static String codecName(byte id) {
+        try {
+            return Codecs.get(id).name();
+        } catch (IOException e) {
+            return "#" + id;
+        }
+    }
+
+    private CompressionPolicy compressionPolicy(String mode) {
+        return switch (mode.toLowerCase()) {
+            case "none" -> CompressionPolicy.none();
+            case "deflate" -> CompressionPolicy.always(Codecs.DEFLATE);
+            case "auto" -> CompressionPolicy.auto(Codecs.DEFLATE);
+            default -> throw new IllegalArgumentException("Unknown compression mode: " + mode);
+        };
+    }
+
+    private byte dxtFormat(String format) {
+        return switch (format.toLowerCase()) {
+            case "auto" -> ImageImporter.FORMAT_AUTO;
+            case "1", "dxt1" -> TextureEntry.FORMAT_DXT1;
+            case "3", "dxt3" -> TextureEntry.FORMAT_DXT3;
+            case "5", "dxt5" -> TextureEntry.FORMAT_DXT5;
+            default -> throw new IllegalArgumentException("Unknown DXT format: " + format);
+        };
+    }
+
+    private DXTEncoder.Quality quality(String mode) {
+        return switch (mode.toLowerCase()) {
+            case "fast" -> DXTEncoder.Quality.FAST;
+            case "high" -> DXTEncoder.Quality.HIGH;
+            default -> throw new IllegalArgumentException("Unknown quality: " + mode);
+        };
+    }
+
+    private int threads() {
+        return options.containsKey("threads") ? intOption("threads") : Runtime.getRuntime().availableProcessors();
+    }
+
+    private int intOption(String name) {
+        try {
+            return Integer.parseInt(options.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number: " + options.get(name));
+        }
+    }
+
+    private void requireArgs(int count, String usage) {
+        if (args.size() < count) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private int usage(String message) {
+        if (message != null) {
+            err.println(message);
+        }
+        err.println("Usage: cgtex <command> [options] <args>");
+        err.println("Commands:");
+        err.println("  pack    <out.cgtex> <dds/png|dirs|globs>...     pack DDS textures and images");
+        err.println("  unpack  <in.cgtex> <out dir>                    export all textures");
+        err.println("  extract <in.cgtex> <out dir> <name>...          export selected textures");
+        err.println("  list    <cgtex files|dirs|globs>...             print table of contents");
+        err.println("  verify  <cgtex files|dirs|globs>...             read and check all payloads");
+        err.println("Options:");
+        err.println("  --threads N       worker threads (default: number of CPUs)");
+        err.println("  --compress MODE   pack: none | deflate | auto (default: none)");
+        err.println("  --version N       pack: CGTEX format version to write (default: latest)");
+        err.println("  --dxt FORMAT      pack: DXT format for images: auto | 1 | 3 | 5 (default: auto)");
+        err.println("  --quality MODE    pack: image encoder quality: fast | high (default: high)");
+        err.println("  --format EXT      unpack/extract: " + String.join(" | ", FileExporter.getFormats()) + " (default: dds)");
+        return message == null ? EXIT_OK : EXIT_USAGE;
+    }
+
+    private record Listing(Path path, CGTEXMetadata metadata, List<CGTEXIndexEntry> index) {}
+}
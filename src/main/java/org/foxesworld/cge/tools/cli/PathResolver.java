@@ -0,0 +1,100 @@
+package org.foxesworld.cge.tools.cli;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Expands command-line inputs into a sorted list of files.
+ * <ul>
+ *     <li>a file is taken as is</li>
+ *     <li>a directory is searched recursively for files with one of the given extensions</li>
+ *     <li>a glob (e.g. {@code textures/**.dds}) is matched below its non-glob prefix</li>
+ * </ul>
+ */
+final class PathResolver {
+    private static final String GLOB_CHARS = "*?[{";
+
+    private PathResolver() {
+    }
+
+    /**
+     * @param inputs    files, directories or globs
+     * @param extensions extensions used for directory inputs, without the dot
+     * @return matching regular files; order is deterministic (sorted per input)
+     * @throws IOException if an input does not exist or cannot be listed
+     */
+    static List<Path> resolve(List<String> inputs, String... extensions) throws IOException {
+        List<Path> result = new ArrayList<>();
+        List<String> suffixes = new ArrayList<>();
+        for (String extension : extensions) {
+            suffixes.add("." + extension.toLowerCase());
+        }
+        for (String input : inputs) {
+            if (isGlob(input)) {
+                result.addAll(matchGlob(input));
+                continue;
+            }
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                result.addAll(walk(path, p -> hasSuffix(p, suffixes)));
+            } else if (Files.isRegularFile(path)) {
+                result.add(path);
+            } else {
+                throw new IOException("No such file or directory: " + input);
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasSuffix(Path path, List<String> suffixes) {
+        String name = path.getFileName().toString().toLowerCase();
+        for (String suffix : suffixes) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isGlob(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (GLOB_CHARS.indexOf(input.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Path> matchGlob(String glob) throws IOException {
+        String normalized = glob.replace('\\', '/');
+        int firstGlob = 0;
+        while (GLOB_CHARS.indexOf(normalized.charAt(firstGlob)) < 0) {
+            firstGlob++;
+        }
+        int baseEnd = normalized.lastIndexOf('/', firstGlob);
+        Path base = baseEnd < 0 ? Paths.get(".") : Paths.get(baseEnd == 0 ? "/" : normalized.substring(0, baseEnd));
+        String pattern = normalized.substring(baseEnd + 1);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        if (!Files.isDirectory(base)) {
+            return List.of();
+        }
+        return walk(base, p -> matcher.matches(base.relativize(p)));
+    }
+
+    private static List<Path> walk(Path dir, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(filter)
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.foxesworld.cge.core.file.cgtex;
+
+import org.foxesworld.cge.core.file.cgtex.codec.CompressionPolicy;
+import org.foxesworld.cge.core.file.cgtex.codec.Codecs;
+import org.foxesworld.cge.core.file.cgtex.reader.CGTEXFileReader;
+import org.foxesworld.cge.core.file.cgtex.reader.ReadMode;
+import org.foxesworld.cge.core.file.cgtex.writer.CGTEXStreamWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Запись и чтение CGTEX всех версий во всех режимах чтения, а также отказ от файлов
+ * с повреждёнными длинами записей.
+ */
+class CGTEXFileRoundTripTest {
+
+    private static final int[] VERSIONS = {
+            CGTEXFile.VERSION_SEQUENTIAL, CGTEXFile.VERSION_INDEXED,
+            CGTEXFile.VERSION_COMPRESSED, CGTEXFile.VERSION_MIPMAPPED
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEveryVersionAndReadMode() throws IOException {
+        for (int version : VERSIONS) {
+            for (boolean compressed : new boolean[]{false, true}) {
+                List<TextureEntry> textures = textures(version);
+                File file = write(version, compressed, textures);
+                for (ReadMode mode : ReadMode.values()) {
+                    String what = "v" + version + (compressed ? " deflate " : " ") + mode;
+                    try (CGTEXFile cgtex = new CGTEXFile(file, "r")) {
+                        CGTEXFileReader reader = new CGTEXFileReader(cgtex, mode);
+                        assertEquals(version, reader.getMetadata().getVersion(), what);
+                        assertEquals(textures.size(), reader.getIndex().size(), what);
+                        List<TextureEntry> read = reader.getTextures();
+                        for (int i = 0; i < textures.size(); i++) {
+                            TextureEntry expected = textures.get(i);
+                            TextureEntry actual = read.get(i);
+                            assertEquals(expected.getName(), actual.getName(), what);
+                            assertEquals(expected.getWidth(), actual.getWidth(), what);
+                            assertEquals(expected.getHeight(), actual.getHeight(), what);
+                            assertEquals(expected.getFormat(), actual.getFormat(), what);
+                            assertArrayEquals(expected.getCompressedData(), actual.getCompressedData(), what);
+                            assertEquals(i, reader.indexOf(expected.getName()), what);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void readsSingleMipLevel() throws IOException {
+        List<TextureEntry> textures = textures(CGTEXFile.VERSION_MIPMAPPED);
+        File file = write(CGTEXFile.VERSION_MIPMAPPED, true, textures);
+        TextureEntry chain = textures.get(textures.size() - 1);
+        try (CGTEXFile cgtex = new CGTEXFile(file, "r")) {
+            CGTEXFileReader reader = new CGTEXFileReader(cgtex, ReadMode.INDEX);
+            CGTEXIndexEntry entry = reader.getIndex().get(reader.indexOf(chain.getName()));
+            assertEquals(chain.getMipCount(), entry.getMipCount());
+            for (int level = 0; level < chain.getMipCount(); level++) {
+                assertArrayEquals(chain.getMipLevel(level), reader.readMipLevel(entry, level), "level " + level);
+            }
+        }
+    }
+
+    @Test
+    void rejectsNegativeDataLength() throws IOException {
+        for (int version : VERSIONS) {
+            File file = write(version, false, textures(version));
+            patchStoredLength(file, 0, -1);
+            assertRecordsRejected(file, version);
+        }
+    }
+
+    @Test
+    void rejectsDataLengthBeyondEndOfFile() throws IOException {
+        for (int version : VERSIONS) {
+            File file = write(version, false, textures(version));
+            patchStoredLength(file, 1, Integer.MAX_VALUE);
+            assertRecordsRejected(file, version);
+        }
+    }
+
+    @Test
+    void rejectsCorruptRawLength() throws IOException {
+        for (int version : new int[]{CGTEXFile.VERSION_COMPRESSED, CGTEXFile.VERSION_MIPMAPPED}) {
+            for (int rawLength : new int[]{Integer.MAX_VALUE, 1}) {
+                File file = write(version, true, textures(version));
+                patchRecordInt(file, 0, 2 * Integer.BYTES, rawLength);
+                assertRecordsRejected(file, version);
+            }
+        }
+    }
+
+    @Test
+    void rejectsNonContiguousMipLevels() throws IOException {
+        List<TextureEntry> textures = textures(CGTEXFile.VERSION_MIPMAPPED);
+        File file = write(CGTEXFile.VERSION_MIPMAPPED, false, textures);
+        long tocOffset;
+        long levelOffset;
+        try (CGTEXFile cgtex = new CGTEXFile(file, "r")) {
+            CGTEXFileReader reader = new CGTEXFileReader(cgtex, ReadMode.INDEX);
+            tocOffset = reader.getMetadata().getTocOffset();
+            levelOffset = reader.getIndex().get(textures.size() - 1).getLevelOffset(1);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // смещение уровня 1 в оглавлении сдвигается на байт назад - внутрь уровня 0
+            for (long pos = tocOffset; ; pos++) {
+                raf.seek(pos);
+                if (raf.readLong() == levelOffset) {
+                    raf.seek(pos);
+                    raf.writeLong(levelOffset - 1);
+                    break;
+                }
+            }
+        }
+        for (ReadMode mode : new ReadMode[]{ReadMode.INDEX, ReadMode.LAZY}) {
+            try (CGTEXFile cgtex = new CGTEXFile(file, "r")) {
+                assertThrows(IOException.class, () -> new CGTEXFileReader(cgtex, mode), mode.toString());
+            }
+        }
+    }
+
+    @Test
+    void closeWithoutFinishTruncatesFile() throws IOException {
+        File file = dir.resolve("aborted.cgtex").toFile();
+        try (CGTEXFile cgtex = new CGTEXFile(file, "rw");
+             CGTEXStreamWriter writer = cgtex.openStreamWriter()) {
+            for (TextureEntry texture : textures(CGTEXFile.VERSION_MIPMAPPED)) {
+                writer.append(texture);
+            }
+        }
+        assertEquals(0, file.length());
+    }
+
+    /**
+     * Длины из записей используются в режиме FULL, а в файлах без оглавления - в любом режиме.
+     */
+    private static void assertRecordsRejected(File file, int version) throws IOException {
+        for (ReadMode mode : ReadMode.values()) {
+            if (mode != ReadMode.FULL && version != CGTEXFile.VERSION_SEQUENTIAL) {
+                continue;
+            }
+            try (CGTEXFile cgtex = new CGTEXFile(file, "r")) {
+                assertThrows(IOException.class, () -> new CGTEXFileReader(cgtex, mode), "v" + version + " " + mode);
+            }
+        }
+    }
+
+    /**
+     * Записывает длину данных записи {@code i} (в версии 4 - длину первого уровня) прямо в файл;
+     * оглавление не меняется.
+     */
+    private static void patchStoredLength(File file, int i, int length) throws IOException {
+        // длина в файле записана непосредственно перед данными
+        patchRecordInt(file, i, Integer.BYTES, length);
+    }
+
+    /**
+     * Записывает {@code value} за {@code back} байт до начала данных записи {@code i}
+     * (в сжатых версиях перед длиной данных лежит распакованная длина).
+     */
+    private static void patchRecordInt(File file, int i, int back, int value) throws IOException {
+        long offset;
+        try (CGTEXFile cgtex = new CGTEXFile(file, "r")) {
+            offset = new CGTEXFileReader(cgtex, ReadMode.INDEX).getIndex().get(i).getOffset();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset - back);
+            raf.writeInt(value);
+        }
+    }
+
+    private File write(int version, boolean compressed, List<TextureEntry> textures) throws IOException {
+        File file = dir.resolve("v" + version + (compressed ? "z" : "") + ".cgtex").toFile();
+        try (CGTEXFile cgtex = new CGTEXFile(file, "rw")) {
+            cgtex.setVERSION(version);
+            CGTEXStreamWriter writer = cgtex.openStreamWriter();
+            if (compressed) {
+                writer.setCompressionPolicy(CompressionPolicy.always(Codecs.DEFLATE));
+            }
+            for (TextureEntry texture : textures) {
+                writer.append(texture);
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    private static List<TextureEntry> textures(int version) {
+        Random random = new Random(version);
+        TextureEntry dxt1 = texture("stone", 64, 32, TextureEntry.FORMAT_DXT1, 1, random);
+        TextureEntry dxt5 = texture("ui/button", 16, 16, TextureEntry.FORMAT_DXT5, 1, random);
+        if (version < CGTEXFile.VERSION_MIPMAPPED) {
+            return List.of(dxt1, dxt5);
+        }
+        return List.of(dxt1, dxt5, texture("grass", 64, 64, TextureEntry.FORMAT_DXT1,
+                TextureEntry.maxMipCount(64, 64), random));
+    }
+
+    private static TextureEntry texture(String name, int width, int height, byte format, int mipCount, Random random) {
+        byte[] data = new byte[(int) TextureEntry.mipChainLength(width, height, format, mipCount)];
+        // повторяющиеся блоки, чтобы deflate действительно сжимал данные
+        byte[] block = new byte[TextureEntry.blockSize(format)];
+        random.nextBytes(block);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (block[i % block.length] + i / 512);
+        }
+        return new TextureEntry(width, height, name, format, data, mipCount);
+    }
+}